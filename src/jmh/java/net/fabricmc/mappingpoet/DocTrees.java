@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.DocTreeVisitor;
+import com.sun.source.doctree.LiteralTree;
+import com.sun.source.doctree.TextTree;
+import com.sun.source.doctree.UnknownBlockTagTree;
+
+/**
+ * Stand-ins for the doc trees javadoc hands to taglets.
+ */
+final class DocTrees {
+	/**
+	 * A class, which taglets only tell apart from members by its type.
+	 */
+	static final TypeElement TYPE = (TypeElement) Proxy.newProxyInstance(DocTrees.class.getClassLoader(), new Class<?>[] {TypeElement.class}, (proxy, method, args) -> {
+		throw new UnsupportedOperationException(method.getName());
+	});
+
+	private DocTrees() {
+	}
+
+	static UnknownBlockTagTree mappingTag(String body) {
+		return new Tag(body);
+	}
+
+	/**
+	 * A {@code @mapping} block tag as javadoc parses it, one literal holding the whole body.
+	 */
+	private static final class Tag implements UnknownBlockTagTree {
+		private final List<Literal> content;
+
+		Tag(String body) {
+			this.content = List.of(new Literal(new Text(body)));
+		}
+
+		@Override
+		public String getTagName() {
+			return "mapping";
+		}
+
+		@Override
+		public List<? extends DocTree> getContent() {
+			return content;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.UNKNOWN_BLOCK_TAG;
+		}
+
+		@Override
+		public <R, D> R accept(DocTreeVisitor<R, D> visitor, D data) {
+			return visitor.visitUnknownBlockTag(this, data);
+		}
+
+		@Override
+		public String toString() {
+			return content.get(0).getBody().getBody();
+		}
+	}
+
+	private record Literal(TextTree getBody) implements LiteralTree {
+		@Override
+		public String getTagName() {
+			return "literal";
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.LITERAL;
+		}
+
+		@Override
+		public <R, D> R accept(DocTreeVisitor<R, D> visitor, D data) {
+			return visitor.visitLiteral(this, data);
+		}
+	}
+
+	private record Text(String getBody) implements TextTree {
+		@Override
+		public Kind getKind() {
+			return Kind.TEXT;
+		}
+
+		@Override
+		public <R, D> R accept(DocTreeVisitor<R, D> visitor, D data) {
+			return visitor.visitText(this, data);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link Main#generate(Path, Path, Path, Path)} end to end over a {@link SyntheticJar},
+ * and reports throughput, peak memory and GC time of each run.
+ *
+ * <p>Arguments are the number of top-level classes, 20000 by default, and the
+ * number of runs, 5 by default. Early runs include JIT warm up.
+ */
+public final class GenerationHarness {
+	private GenerationHarness() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		int classCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Path dir = Files.createTempDirectory("mappingpoet-harness");
+
+		try {
+			Path jar = dir.resolve("synthetic.jar");
+			Path mappings = dir.resolve("synthetic.tiny");
+			SyntheticJar.write(jar, classCount);
+			SyntheticJar.writeMappings(mappings, classCount);
+			int classFiles;
+
+			try (JarFile jarFile = new JarFile(jar.toFile())) {
+				classFiles = jarFile.size();
+			}
+
+			System.out.printf(Locale.ROOT, "%d top-level classes, %d class files, %d KiB of mappings%n",
+					classCount, classFiles, Files.size(mappings) >> 10);
+
+			for (int run = 1; run <= runs; run++) {
+				Path output = dir.resolve("output" + run);
+				List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+						.filter(pool -> pool.getType() == MemoryType.HEAP)
+						.toList();
+				heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+				long gcTimeStart = gcTime();
+				long start = System.nanoTime();
+
+				Main.generate(mappings, jar, output, null);
+
+				double seconds = (System.nanoTime() - start) / 1e9;
+				long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+				System.out.printf(Locale.ROOT, "run %d: %.2f s, %.0f classes/s, peak heap %d MiB, peak RSS %s, GC %d ms%n",
+						run, seconds, classFiles / seconds, peakHeap >> 20, peakRss(), gcTime() - gcTimeStart);
+				delete(output);
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private static long gcTime() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionTime)
+				.filter(time -> time > 0)
+				.sum();
+	}
+
+	/**
+	 * The high water mark of the resident set of this process, which cannot be reset between runs.
+	 */
+	private static String peakRss() {
+		Path status = Paths.get("/proc/self/status");
+
+		if (!Files.isReadable(status)) {
+			return "n/a";
+		}
+
+		try (Stream<String> lines = Files.lines(status)) {
+			return lines.filter(line -> line.startsWith("VmHWM:"))
+					.map(line -> (Long.parseLong(line.replaceAll("\\D", "")) >> 10) + " MiB")
+					.findFirst()
+					.orElse("n/a");
+		} catch (IOException e) {
+			return "n/a";
+		}
+	}
+
+	private static void delete(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path file : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+}
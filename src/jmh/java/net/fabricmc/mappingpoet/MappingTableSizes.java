@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.source.doctree.UnknownBlockTagTree;
+
+import net.fabricmc.mappingpoet.jd.MappingTaglet;
+
+/**
+ * Compares the size of the mapping HTML that {@link MappingTaglet} adds to docs as
+ * full tables and in {@linkplain MappingTaglet#COMPACT_PROPERTY compact} form, raw
+ * and gzipped as it is usually served, for two to six namespaces.
+ *
+ * <p>Arguments are the number of members, 20000 by default, and the share of members
+ * whose named names are the intermediary ones, 0.5 by default.
+ */
+public final class MappingTableSizes {
+	private static final String[] NAMESPACES = {"official", "intermediary", "named", "srg", "mojmap", "hashed"};
+
+	private MappingTableSizes() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		int memberCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		double unnamed = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+		for (int namespaces = 2; namespaces <= NAMESPACES.length; namespaces++) {
+			List<List<UnknownBlockTagTree>> members = new ArrayList<>(memberCount);
+			List<List<UnknownBlockTagTree>> types = new ArrayList<>(memberCount);
+
+			for (int i = 0; i < memberCount; i++) {
+				// spread the unnamed members evenly
+				boolean named = (long) (i * unnamed) == (long) ((i + 1) * unnamed);
+				List<UnknownBlockTagTree> memberTags = new ArrayList<>();
+				List<UnknownBlockTagTree> typeTags = new ArrayList<>();
+
+				for (int ns = 0; ns < namespaces; ns++) {
+					String owner = switch (ns) {
+					case 0 -> "a" + i;
+					case 1 -> "net/minecraft/class_" + i;
+					default -> named ? "net/minecraft/world/Thing" + i : "net/minecraft/class_" + i;
+					};
+					String method = switch (ns) {
+					case 0 -> "a";
+					case 1 -> "method_" + i;
+					default -> named ? "doSomething" + i : "method_" + i;
+					};
+					String descriptor = ns == 0 ? "(Lb" + i + ";I)V" : "(Lnet/minecraft/class_" + (i + 1) + ";I)V";
+					memberTags.add(DocTrees.mappingTag(NAMESPACES[ns] + ":" + method + ":L" + owner + ";" + method + descriptor));
+					typeTags.add(DocTrees.mappingTag(NAMESPACES[ns] + ":" + owner));
+				}
+
+				members.add(memberTags);
+				types.add(typeTags);
+			}
+
+			Size table = render(members, types, false);
+			Size compact = render(members, types, true);
+			System.out.printf(Locale.ROOT, "%d namespaces: table %d KiB (%d KiB gzipped), compact %d KiB (%d KiB gzipped), %.0f%% smaller (%.0f%% gzipped)%n",
+					namespaces, table.raw() >> 10, table.gzipped() >> 10, compact.raw() >> 10, compact.gzipped() >> 10,
+					100 - 100.0 * compact.raw() / table.raw(), 100 - 100.0 * compact.gzipped() / table.gzipped());
+		}
+	}
+
+	private static Size render(List<List<UnknownBlockTagTree>> members, List<List<UnknownBlockTagTree>> types, boolean compact) throws IOException {
+		System.setProperty(MappingTaglet.COMPACT_PROPERTY, Boolean.toString(compact));
+		MappingTaglet taglet = new MappingTaglet();
+		long raw = 0;
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+			for (int i = 0; i < members.size(); i++) {
+				raw += write(gzip, taglet.toString(members.get(i), null));
+				raw += write(gzip, taglet.toString(types.get(i), DocTrees.TYPE));
+			}
+		} finally {
+			System.clearProperty(MappingTaglet.COMPACT_PROPERTY);
+		}
+
+		return new Size(raw, gzipped.size());
+	}
+
+	private static int write(GZIPOutputStream gzip, String html) throws IOException {
+		byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+		gzip.write(bytes);
+		return bytes.length;
+	}
+
+	private record Size(long raw, long gzipped) {
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.LiteralTree;
+import com.sun.source.doctree.UnknownBlockTagTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.mappingpoet.jd.MappingTaglet;
+
+/**
+ * Measures rendering the {@code @mapping} tags of one documented member, the way
+ * javadoc calls {@link MappingTaglet} for every member page entry.
+ *
+ * <p>Multiplied by the number of tags, this is the share of the {@code javadoc}
+ * phase of a {@code --report} that goes to the taglet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingTagletBenchmark {
+	// more than the taglet caches, so rendering members always misses
+	private static final int MEMBERS = 1 << 16;
+	private static final int REPEATED_MEMBERS = 64;
+
+	private final MappingTaglet taglet = new MappingTaglet();
+	private List<List<UnknownBlockTagTree>> members;
+	private List<List<UnknownBlockTagTree>> types;
+	private int next;
+
+	@Setup
+	public void setup() {
+		members = new ArrayList<>(MEMBERS);
+		types = new ArrayList<>(MEMBERS);
+
+		for (int i = 0; i < MEMBERS; i++) {
+			String owner = "net/minecraft/class_" + i;
+			String descriptor = "(Lnet/minecraft/class_" + (i + 1) + ";I)V";
+			// constructors are where escaping kicks in
+			String method = i % 8 == 0 ? "<init>" : "method_" + i;
+			String named = i % 8 == 0 ? "<init>" : "doSomething" + i;
+			members.add(List.of(
+					DocTrees.mappingTag("official:" + (i % 8 == 0 ? "<init>" : "a") + ":La" + i + ";a(Lb" + i + ";I)V"),
+					DocTrees.mappingTag("intermediary:" + method + ":L" + owner + ";" + method + descriptor),
+					DocTrees.mappingTag("named:" + named + ":Lnet/minecraft/world/Thing" + i + ";" + named + "(Lnet/minecraft/world/Other;I)V")));
+			types.add(List.of(
+					DocTrees.mappingTag("official:a" + i),
+					DocTrees.mappingTag("intermediary:" + owner),
+					DocTrees.mappingTag("named:net/minecraft/world/Thing" + i)));
+		}
+
+		for (int i = 0; i < 16; i++) {
+			if (!legacy(members.get(i), null).equals(taglet.toString(members.get(i), null))
+					|| !legacy(types.get(i), DocTrees.TYPE).equals(taglet.toString(types.get(i), DocTrees.TYPE))) {
+				throw new IllegalStateException("Renderers disagree on " + members.get(i));
+			}
+		}
+	}
+
+	// bounds are powers of two
+	private int next(int bound) {
+		return next++ & (bound - 1);
+	}
+
+	@Benchmark
+	public String renderMember() {
+		return taglet.toString(members.get(next(MEMBERS)), null);
+	}
+
+	@Benchmark
+	public String renderMemberLegacy() {
+		return legacy(members.get(next(MEMBERS)), null);
+	}
+
+	/**
+	 * Members whose rows are already cached, like overrides rendered on several pages.
+	 */
+	@Benchmark
+	public String renderRepeatedMember() {
+		return taglet.toString(members.get(next(REPEATED_MEMBERS)), null);
+	}
+
+	@Benchmark
+	public String renderType() {
+		return taglet.toString(types.get(next(MEMBERS)), DocTrees.TYPE);
+	}
+
+	@Benchmark
+	public String renderTypeLegacy() {
+		return legacy(types.get(next(MEMBERS)), DocTrees.TYPE);
+	}
+
+	/**
+	 * The rendering {@link MappingTaglet} did before it reused buffers and cached rows.
+	 */
+	private static String legacy(List<? extends DocTree> tags, Element element) {
+		boolean typeDecl = element instanceof TypeElement;
+		StringBuilder builder = new StringBuilder();
+		builder.append("<dt>Mappings:</dt>\n");
+		builder.append("<dd><div class=\"fabric\"><table class=\"mapping\" summary=\"Mapping data\">\n");
+		builder.append("<thead>\n");
+		builder.append("<th>Namespace</th>\n");
+		builder.append("<th>Name</th>\n");
+		if (!typeDecl) {
+			builder.append("<th>Mixin selector</th>\n");
+		}
+		builder.append("</thead>\n");
+		builder.append("<tbody>\n");
+
+		for (DocTree each : tags) {
+			String body = ((UnknownBlockTagTree) each).getContent().stream().map(t -> ((LiteralTree) t).getBody().getBody()).collect(Collectors.joining());
+			String[] ans = body.split(":", 3);
+			builder.append("<tr>\n");
+			builder.append(String.format("<td>%s</td>\n", escaped(ans[0])));
+			builder.append(String.format("<td><span class=\"copyable\"><code>%s</code></span></td>\n", escaped(ans[1])));
+			if (!typeDecl) {
+				builder.append(String.format("<td><span class=\"copyable\"><code>%s</code></span></td>\n", escaped(ans[2])));
+			}
+			builder.append("</tr>\n");
+		}
+
+		builder.append("</tbody>\n");
+		builder.append("</table></div></dd>\n");
+		return builder.toString();
+	}
+
+	private static String escaped(String original) {
+		StringBuilder builder = new StringBuilder(original.length());
+		final int len = original.length();
+		for (int i = 0; i < len; i++) {
+			char c = original.charAt(i);
+			if (c > 127 || c == '"' || c == '\'' || c == '<' || c == '>' || c == '&') {
+				builder.append("&#").append((int) c).append(";");
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+}
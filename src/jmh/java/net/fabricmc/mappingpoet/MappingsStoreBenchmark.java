@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures single lookups of {@link MappingsStore}, for members declared on the
+ * class itself, inherited from the top of a deep hierarchy, missing from all of
+ * it, and parameters of wide methods.
+ *
+ * <p>The mapping is the test {@code dummy.tiny}, followed by synthetic classes in
+ * the same three namespaces. The last {@code depth} classes extend each other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingsStoreBenchmark {
+	private static final int METHODS = 8;
+	private static final int WIDE_PARAMS = 16;
+	private static final String WIDE_DESC = "(" + "I".repeat(WIDE_PARAMS) + ")V";
+
+	@Param({"1000", "20000"})
+	public int classes;
+
+	@Param({"1", "8", "32"})
+	public int depth;
+
+	private Path file;
+	private MappingsStore store;
+	private Environment environment;
+	private String[] names;
+	private String leaf;
+	private int cursor;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Files.createTempFile("mappingpoet-benchmark", ".tiny");
+		writeMappings(file);
+		store = new MappingsStore(file);
+		names = new String[classes];
+
+		for (int i = 0; i < classes; i++) {
+			names[i] = className(i);
+		}
+
+		Map<String, Collection<String>> superTypes = new HashMap<>();
+
+		for (int i = classes - depth + 1; i < classes; i++) {
+			superTypes.put(names[i], List.of(names[i - 1]));
+		}
+
+		environment = new Environment(superTypes, new HashSet<>(), new HashMap<>());
+		leaf = names[classes - 1];
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private void writeMappings(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+				InputStream dummy = MappingsStoreBenchmark.class.getResourceAsStream("/dummy.tiny")) {
+			writer.write(new String(dummy.readAllBytes(), StandardCharsets.UTF_8));
+
+			for (int i = 0; i < classes; i++) {
+				writer.write("c\tnet/minecraft/class_" + i + "\ta" + i + "\t" + className(i) + "\n");
+				writer.write("\tc\tSynthetic class " + i + ".\n");
+
+				for (int m = 0; m < METHODS; m++) {
+					writer.write("\tm\t(ILjava/lang/String;)V\tmethod_" + m + "\tb" + m + "\tmethod" + m + "\n");
+					writer.write("\t\tc\tDoes thing " + m + ".\n");
+					writer.write("\t\tp\t1\t\t\tcount\n");
+					writer.write("\t\tp\t2\t\t\tname\n");
+				}
+
+				writer.write("\tm\t" + WIDE_DESC + "\tmethod_wide\tw\twide\n");
+
+				for (int p = 1; p <= WIDE_PARAMS; p++) {
+					writer.write("\t\tp\t" + p + "\t\t\tparam" + p + "\n");
+					writer.write("\t\t\tc\tParameter " + p + ".\n");
+				}
+
+				if (i == classes - depth) {
+					// only on the top of the hierarchy
+					writer.write("\tm\t()V\tmethod_inherited\ti\tinherited\n");
+					writer.write("\t\tc\tInherited by all subclasses.\n");
+				}
+
+				writer.write("\tf\tI\tfield_0\tc\tfield0\n");
+				writer.write("\t\tc\tA field.\n");
+			}
+		}
+	}
+
+	private static String className(int index) {
+		return "benchmark/p" + (index / 100) + "/Class" + index;
+	}
+
+	private String nextClass() {
+		if (cursor >= names.length) {
+			cursor = 0;
+		}
+
+		return names[cursor++];
+	}
+
+	@Benchmark
+	public void classDoc(Blackhole blackhole) {
+		store.addClassDoc((format, args) -> blackhole.consume(args), nextClass());
+	}
+
+	@Benchmark
+	public void fieldDoc(Blackhole blackhole) {
+		store.addFieldDoc((format, args) -> blackhole.consume(args), nextClass(), "field0", "I");
+	}
+
+	@Benchmark
+	public void methodDocDirect(Blackhole blackhole) {
+		store.addMethodDoc((format, args) -> blackhole.consume(args), environment, nextClass(), "method3", "(ILjava/lang/String;)V");
+	}
+
+	@Benchmark
+	public void methodDocInherited(Blackhole blackhole) {
+		store.addMethodDoc((format, args) -> blackhole.consume(args), environment, leaf, "inherited", "()V");
+	}
+
+	@Benchmark
+	public void methodDocMiss(Blackhole blackhole) {
+		store.addMethodDoc((format, args) -> blackhole.consume(args), environment, leaf, "missing", "()V");
+	}
+
+	@Benchmark
+	public Map.Entry<String, String> paramDirect() {
+		return store.getParamNameAndDoc(environment, nextClass(), "method3", "(ILjava/lang/String;)V", 2);
+	}
+
+	@Benchmark
+	public Map.Entry<String, String> paramWide() {
+		// the last parameter, so every parameter mapping of the method is looked at
+		return store.getParamNameAndDoc(environment, nextClass(), "wide", WIDE_DESC, WIDE_PARAMS);
+	}
+
+	@Benchmark
+	public Map.Entry<String, String> paramInheritedMiss() {
+		return store.getParamNameAndDoc(environment, leaf, "missing", "()V", 1);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.MethodSpec;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the modifiers of members and method builders with them, looked up in
+ * {@link ModifierBuilder} against computing them for every member as it used to.
+ *
+ * <p>The gc profiler of {@code gradlew jmh} reports the allocations of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModifierBenchmark {
+	// access flags of the members of a typical jar, most of them public or private
+	private static final int[] ACCESS = {
+			Opcodes.ACC_PUBLIC,
+			Opcodes.ACC_PRIVATE,
+			Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL,
+			Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+			Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL,
+			Opcodes.ACC_PROTECTED,
+			Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+			Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNCHRONIZED,
+	};
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		for (int access : ACCESS) {
+			for (ModifierBuilder.Type type : ModifierBuilder.Type.values()) {
+				if (!List.of(legacyModifiers(access, type)).equals(List.of(ModifierBuilder.getModifiers(access, type)))) {
+					throw new IllegalStateException("Modifiers of " + access + " " + type + " changed");
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public Modifier[] lookup() {
+		return ModifierBuilder.getModifiers(nextAccess(), ModifierBuilder.Type.METHOD);
+	}
+
+	@Benchmark
+	public Modifier[] legacy() {
+		return legacyModifiers(nextAccess(), ModifierBuilder.Type.METHOD);
+	}
+
+	@Benchmark
+	public MethodSpec.Builder methodBuilder() {
+		return MethodSpec.methodBuilder("method").addModifiers(ModifierBuilder.getModifiers(nextAccess(), ModifierBuilder.Type.METHOD));
+	}
+
+	@Benchmark
+	public MethodSpec.Builder methodBuilderLegacy() {
+		return MethodSpec.methodBuilder("method").addModifiers(legacyModifiers(nextAccess(), ModifierBuilder.Type.METHOD));
+	}
+
+	private int nextAccess() {
+		return ACCESS[next++ & (ACCESS.length - 1)];
+	}
+
+	/**
+	 * How {@link ModifierBuilder} computed modifiers for every member.
+	 */
+	private static Modifier[] legacyModifiers(int access, ModifierBuilder.Type type) {
+		List<Modifier> modifiers = new ArrayList<>();
+
+		if (type == ModifierBuilder.Type.PARAM) {
+			if (java.lang.reflect.Modifier.isFinal(access)) {
+				modifiers.add(Modifier.FINAL);
+			}
+			return modifiers.toArray(new Modifier[]{});
+		}
+
+		if (java.lang.reflect.Modifier.isPublic(access)) {
+			modifiers.add(Modifier.PUBLIC);
+		} else if (java.lang.reflect.Modifier.isPrivate(access)) {
+			modifiers.add(Modifier.PRIVATE);
+		} else if (java.lang.reflect.Modifier.isProtected(access)) {
+			modifiers.add(Modifier.PROTECTED);
+		}
+
+		if (java.lang.reflect.Modifier.isAbstract(access) && type != ModifierBuilder.Type.ENUM) {
+			modifiers.add(Modifier.ABSTRACT);
+		}
+		if (java.lang.reflect.Modifier.isStatic(access)) {
+			modifiers.add(Modifier.STATIC);
+		}
+		if (!java.lang.reflect.Modifier.isAbstract(access) && !java.lang.reflect.Modifier.isStatic(access) && type == ModifierBuilder.Type.METHOD) {
+			modifiers.add(Modifier.DEFAULT);
+		}
+
+		if (java.lang.reflect.Modifier.isFinal(access) && type != ModifierBuilder.Type.ENUM && type != ModifierBuilder.Type.RECORD) {
+			modifiers.add(Modifier.FINAL);
+		}
+		if (java.lang.reflect.Modifier.isTransient(access) && type == ModifierBuilder.Type.FIELD) {
+			modifiers.add(Modifier.TRANSIENT);
+		}
+		if (java.lang.reflect.Modifier.isVolatile(access) && type == ModifierBuilder.Type.FIELD) {
+			modifiers.add(Modifier.VOLATILE);
+		}
+		if (java.lang.reflect.Modifier.isSynchronized(access) && type == ModifierBuilder.Type.METHOD) {
+			modifiers.add(Modifier.SYNCHRONIZED);
+		}
+		if (java.lang.reflect.Modifier.isNative(access) && type == ModifierBuilder.Type.METHOD) {
+			modifiers.add(Modifier.NATIVE);
+		}
+		if (java.lang.reflect.Modifier.isStrict(access)) {
+			modifiers.add(Modifier.STRICTFP);
+		}
+
+		return modifiers.toArray(new Modifier[]{});
+	}
+}
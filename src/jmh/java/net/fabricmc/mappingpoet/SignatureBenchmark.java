@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.mappingpoet.signature.AnnotationAwareSignatures;
+import net.fabricmc.mappingpoet.signature.ClassSignature;
+import net.fabricmc.mappingpoet.signature.ClassStaticContext;
+import net.fabricmc.mappingpoet.signature.MethodSignature;
+import net.fabricmc.mappingpoet.signature.TypeAnnotationBank;
+import net.fabricmc.mappingpoet.signature.TypeAnnotationMapping;
+
+/**
+ * Parses one entry of the {@link SignatureCorpus} per operation, cycling through
+ * all entries of a kind.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+	// no library index in these benchmarks, so no class is known to be an instance inner class
+	private static final ClassStaticContext CONTEXT = internalName -> false;
+
+	private String[] classSignatures;
+	private String[] methodSignatures;
+	private String[] fieldSignatures;
+	private String[] descriptors;
+	private String[] internalNames;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+		SignatureCorpus corpus = SignatureCorpus.load();
+		classSignatures = corpus.get(SignatureCorpus.Kind.CLASS_SIGNATURE);
+		methodSignatures = corpus.get(SignatureCorpus.Kind.METHOD_SIGNATURE);
+		fieldSignatures = corpus.get(SignatureCorpus.Kind.FIELD_SIGNATURE);
+		descriptors = corpus.get(SignatureCorpus.Kind.DESCRIPTOR);
+		internalNames = corpus.get(SignatureCorpus.Kind.INTERNAL_NAME);
+	}
+
+	private String next(String[] entries) {
+		if (cursor >= entries.length) {
+			cursor = 0;
+		}
+
+		return entries[cursor++];
+	}
+
+	@Benchmark
+	public Map.Entry<Integer, TypeName> parseParameterizedType() {
+		return Signatures.parseParameterizedType(next(fieldSignatures), 0);
+	}
+
+	@Benchmark
+	public MethodSignature parseMethodSignature() {
+		return AnnotationAwareSignatures.parseMethodSignature(next(methodSignatures), TypeAnnotationMapping.EMPTY, CONTEXT);
+	}
+
+	@Benchmark
+	public ClassSignature parseClassSignature() {
+		return AnnotationAwareSignatures.parseClassSignature(next(classSignatures), TypeAnnotationMapping.EMPTY, CONTEXT);
+	}
+
+	@Benchmark
+	public Map.Entry<Integer, TypeName> parseType() {
+		return FieldBuilder.parseType(next(descriptors), 0);
+	}
+
+	@Benchmark
+	public Map.Entry<Integer, TypeName> parseAnnotatedType() {
+		return FieldBuilder.parseAnnotatedType(next(descriptors), 0, TypeAnnotationBank.EMPTY, CONTEXT);
+	}
+
+	@Benchmark
+	public ClassName parseInternalName() {
+		return ClassBuilder.parseInternalName(next(internalNames));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import net.fabricmc.mappingpoet.input.InputSource;
+
+/**
+ * Descriptors and signatures harvested from real classes, used as benchmark inputs.
+ *
+ * <p>The checked in corpus is regenerated with {@code main}, which harvests
+ * {@code java.base} of the running JDK unless given a jar.
+ */
+final class SignatureCorpus {
+	static final String RESOURCE = "/signature-corpus.txt";
+	// per kind, spread evenly over all distinct values
+	private static final int SAMPLE_SIZE = 500;
+	// anonymous and local classes are never generated, so neither are references to them
+	private static final Pattern LOCAL_CLASS = Pattern.compile("\\$\\d");
+
+	enum Kind {
+		CLASS_SIGNATURE,
+		METHOD_SIGNATURE,
+		FIELD_SIGNATURE,
+		DESCRIPTOR,
+		INTERNAL_NAME
+	}
+
+	private final Map<Kind, String[]> entries;
+
+	private SignatureCorpus(Map<Kind, String[]> entries) {
+		this.entries = entries;
+	}
+
+	String[] get(Kind kind) {
+		return entries.get(kind);
+	}
+
+	static SignatureCorpus load() {
+		Map<Kind, List<String>> entries = new EnumMap<>(Kind.class);
+
+		for (Kind kind : Kind.values()) {
+			entries.put(kind, new ArrayList<>());
+		}
+
+		try (InputStream is = SignatureCorpus.class.getResourceAsStream(RESOURCE)) {
+			if (is == null) {
+				throw new IllegalStateException("Missing " + RESOURCE);
+			}
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				int tab = line.indexOf('\t');
+				entries.get(Kind.valueOf(line.substring(0, tab))).add(line.substring(tab + 1));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		Map<Kind, String[]> result = new EnumMap<>(Kind.class);
+		entries.forEach((kind, list) -> result.put(kind, list.toArray(new String[0])));
+		return new SignatureCorpus(result);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1 && args.length != 2) {
+			System.out.println("<output> [<inputJar>]");
+			return;
+		}
+
+		Map<Kind, Set<String>> harvested = new EnumMap<>(Kind.class);
+
+		for (Kind kind : Kind.values()) {
+			harvested.put(kind, new TreeSet<>());
+		}
+
+		String source;
+
+		if (args.length == 2) {
+			source = Paths.get(args[1]).getFileName().toString();
+			InputSource.jar(Paths.get(args[1])).forEachClass(classFile -> harvest(classFile, harvested));
+		} else {
+			source = "jrt:/java.base (Java " + System.getProperty("java.version") + ")";
+			FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+			try (Stream<Path> stream = Files.walk(jrt.getPath("modules", "java.base"))) {
+				for (Path file : (Iterable<Path>) stream.filter(p -> p.toString().endsWith(".class")).sorted()::iterator) {
+					harvest(Files.readAllBytes(file), harvested);
+				}
+			}
+		}
+
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			writer.write("# Harvested by SignatureCorpus from " + source + ", regenerate instead of editing\n");
+
+			for (Kind kind : Kind.values()) {
+				for (String entry : sample(harvested.get(kind))) {
+					writer.write(kind.name() + "\t" + entry + "\n");
+				}
+			}
+		}
+	}
+
+	private static void harvest(byte[] classFile, Map<Kind, Set<String>> harvested) {
+		ClassNode classNode = new ClassNode();
+		new ClassReader(classFile).accept(classNode, ClassReader.SKIP_CODE);
+
+		if (LOCAL_CLASS.matcher(classNode.name).find() || classNode.name.equals("module-info")) {
+			return;
+		}
+
+		harvested.get(Kind.INTERNAL_NAME).add(classNode.name);
+		add(harvested.get(Kind.CLASS_SIGNATURE), classNode.signature);
+
+		for (FieldNode field : classNode.fields) {
+			add(harvested.get(Kind.DESCRIPTOR), field.desc);
+			add(harvested.get(Kind.FIELD_SIGNATURE), field.signature);
+		}
+
+		for (MethodNode method : classNode.methods) {
+			for (Type type : Type.getArgumentTypes(method.desc)) {
+				add(harvested.get(Kind.DESCRIPTOR), type.getDescriptor());
+			}
+
+			add(harvested.get(Kind.METHOD_SIGNATURE), method.signature);
+		}
+	}
+
+	private static void add(Set<String> entries, String entry) {
+		if (entry != null && !LOCAL_CLASS.matcher(entry).find()) {
+			entries.add(entry);
+		}
+	}
+
+	private static List<String> sample(Set<String> entries) {
+		List<String> all = new ArrayList<>(entries);
+
+		if (all.size() <= SAMPLE_SIZE) {
+			return all;
+		}
+
+		List<String> sample = new ArrayList<>(SAMPLE_SIZE);
+
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			sample.add(all.get((int) ((long) i * all.size() / SAMPLE_SIZE)));
+		}
+
+		return sample;
+	}
+}
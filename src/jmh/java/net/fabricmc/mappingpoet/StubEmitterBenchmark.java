@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering one stub source file with JavaPoet's two passes against
+ * {@link StubEmitter}, for classes with increasing numbers of members.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StubEmitterBenchmark {
+	private static final ClassName NULLABLE = ClassName.get("org.jetbrains.annotations", "Nullable");
+	private static final ClassName IDENTIFIER = ClassName.get("net.minecraft.util", "Identifier");
+	private static final ClassName ENTITY = ClassName.get("net.minecraft.entity", "Entity");
+	private static final ClassName LIST = ClassName.get("java.util", "List");
+	private static final ClassName MAP = ClassName.get("java.util", "Map");
+
+	/**
+	 * Methods of the class, with a field for every fourth and a nested class for every sixteenth.
+	 */
+	@Param({"16", "128", "1024"})
+	public int members;
+
+	private JavaFile javaFile;
+	private StringBuilder buffer;
+
+	@Setup
+	public void setup() throws IOException {
+		TypeVariableName t = TypeVariableName.get("T", ENTITY);
+		TypeSpec.Builder type = TypeSpec.classBuilder("Generated")
+				.addModifiers(Modifier.PUBLIC)
+				.addTypeVariable(t)
+				.superclass(ClassName.get("net.minecraft.entity", "LivingEntity"));
+
+		for (int i = 0; i < members; i++) {
+			if (i % 4 == 0) {
+				type.addField(FieldSpec.builder(ParameterizedTypeName.get(MAP, IDENTIFIER, t), "field" + i, Modifier.PRIVATE).build());
+			}
+
+			if (i % 16 == 0) {
+				type.addType(TypeSpec.classBuilder("Inner" + i)
+						.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addField(IDENTIFIER, "id", Modifier.PUBLIC)
+						.build());
+			}
+
+			// the stubs MethodBuilder emits, an annotated signature and a body that throws
+			type.addMethod(MethodSpec.methodBuilder("method" + i)
+					.addJavadoc("Maps {@link $T} to {@link $T}.\n", IDENTIFIER, ENTITY)
+					.addModifiers(Modifier.PUBLIC)
+					.returns(ParameterizedTypeName.get(LIST, t))
+					.addParameter(ParameterSpec.builder(IDENTIFIER, "id").addAnnotation(NULLABLE).build())
+					.addParameter(TypeName.INT, "count")
+					.addAnnotation(AnnotationSpec.builder(ClassName.get("net.fabricmc.api", "Environment"))
+							.addMember("value", "$T.CLIENT", ClassName.get("net.fabricmc.api", "EnvType"))
+							.build())
+					.addStatement("throw new RuntimeException()")
+					.build());
+		}
+
+		javaFile = JavaFile.builder("net.minecraft.generated", type.build()).build();
+		buffer = new StringBuilder(1 << 16);
+
+		if (!StubEmitter.isAvailable()) {
+			throw new IllegalStateException("StubEmitter is not available with this JavaPoet");
+		}
+
+		if (!javaPoet().equals(direct())) {
+			throw new IllegalStateException("StubEmitter renders differently than JavaPoet");
+		}
+	}
+
+	@Benchmark
+	public String javaPoet() throws IOException {
+		buffer.setLength(0);
+		javaFile.writeTo(buffer);
+		return buffer.toString();
+	}
+
+	@Benchmark
+	public String direct() throws IOException {
+		buffer.setLength(0);
+		StubEmitter.writeTo(javaFile, buffer);
+		return buffer.toString();
+	}
+}
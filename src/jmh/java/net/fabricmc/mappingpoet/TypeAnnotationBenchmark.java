@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.TypeName;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.TypeReference;
+import org.objectweb.asm.tree.TypeAnnotationNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.mappingpoet.signature.AnnotationAwareDescriptors;
+import net.fabricmc.mappingpoet.signature.AnnotationAwareSignatures;
+import net.fabricmc.mappingpoet.signature.ClassStaticContext;
+import net.fabricmc.mappingpoet.signature.MethodSignature;
+import net.fabricmc.mappingpoet.signature.TypeAnnotationBank;
+import net.fabricmc.mappingpoet.signature.TypeAnnotationMapping;
+import net.fabricmc.mappingpoet.signature.TypeAnnotationStorage;
+
+/**
+ * Measures building and querying the type annotations of one method, annotated
+ * the way nullability annotators do, at increasing densities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeAnnotationBenchmark {
+	// erased return type of the signature
+	private static final String RETURN_DESCRIPTOR = "Ljava/util/List;";
+	private static final String SIGNATURE = "(Ljava/util/Map<TK;+Ljava/util/List<TV;>;>;[Ljava/lang/String;)Ljava/util/List<TV;>;";
+	private static final ClassStaticContext CONTEXT = internalName -> false;
+	private static final TypeReference RETURN = TypeReference.newTypeReference(TypeReference.METHOD_RETURN);
+	private static final TypeReference MAP_PARAMETER = TypeReference.newFormalParameterReference(0);
+	private static final TypeReference ARRAY_PARAMETER = TypeReference.newFormalParameterReference(1);
+	// every type of the signature above, outermost first
+	private static final Object[][] PLACES = {
+			{RETURN, ""},
+			{MAP_PARAMETER, ""},
+			{ARRAY_PARAMETER, "["},
+			{RETURN, "0;"},
+			{MAP_PARAMETER, "0;"},
+			{MAP_PARAMETER, "1;"},
+			{MAP_PARAMETER, "1;*"},
+			{MAP_PARAMETER, "1;*0;"},
+			{ARRAY_PARAMETER, ""},
+	};
+
+	/**
+	 * How many of the nine types of the method are annotated.
+	 */
+	@Param({"1", "4", "9"})
+	public int density;
+
+	private List<TypeAnnotationNode> invisibleNodes;
+	private List<TypeAnnotationNode> visibleNodes;
+	private int[] typeReferences;
+	private String[] paths;
+	private AnnotationSpec[] specs;
+	private TypeAnnotationMapping mapping;
+	private TypeAnnotationBank mapParameterBank;
+
+	@Setup
+	public void setup() {
+		invisibleNodes = new ArrayList<>();
+		visibleNodes = new ArrayList<>();
+		List<TypeAnnotationNode> all = new ArrayList<>();
+
+		for (int i = 0; i < density; i++) {
+			int typeReference = ((TypeReference) PLACES[i][0]).getValue();
+			String path = (String) PLACES[i][1];
+			TypePath typePath = path.isEmpty() ? null : TypePath.fromString(path);
+			// mostly marker annotations, with the odd annotation that has a value
+			TypeAnnotationNode nullability = new TypeAnnotationNode(typeReference, typePath, i % 2 == 0 ? "Lorg/jetbrains/annotations/Nullable;" : "Lorg/jetbrains/annotations/NotNull;");
+			invisibleNodes.add(nullability);
+			all.add(nullability);
+
+			if (i % 3 == 0) {
+				TypeAnnotationNode checked = new TypeAnnotationNode(typeReference, typePath, "Ljavax/annotation/Nonnull;");
+				checked.visitEnum("when", "Ljavax/annotation/meta/When;", "MAYBE");
+				visibleNodes.add(checked);
+				all.add(checked);
+			}
+		}
+
+		typeReferences = new int[all.size()];
+		paths = new String[all.size()];
+		specs = new AnnotationSpec[all.size()];
+
+		for (int i = 0; i < all.size(); i++) {
+			TypeAnnotationNode node = all.get(i);
+			typeReferences[i] = node.typeRef;
+			paths[i] = node.typePath == null ? "" : node.typePath.toString();
+			specs[i] = FieldBuilder.parseAnnotation(node);
+		}
+
+		mapping = buildFromNodes();
+		mapParameterBank = mapping.getBank(MAP_PARAMETER);
+	}
+
+	/**
+	 * What method builders do, including turning the nodes into annotation specs.
+	 */
+	@Benchmark
+	public TypeAnnotationMapping buildFromNodes() {
+		return TypeAnnotationStorage.builder()
+				.add(invisibleNodes)
+				.add(visibleNodes)
+				.build();
+	}
+
+	@Benchmark
+	public TypeAnnotationMapping buildFromSpecs() {
+		TypeAnnotationStorage.Builder builder = TypeAnnotationStorage.builder();
+
+		for (int i = 0; i < specs.length; i++) {
+			builder.add(typeReferences[i], paths[i], specs[i]);
+		}
+
+		return builder.build();
+	}
+
+	@Benchmark
+	public TypeAnnotationBank getBank() {
+		return mapping.getBank(MAP_PARAMETER);
+	}
+
+	@Benchmark
+	public List<AnnotationSpec> currentAnnotations() {
+		return mapParameterBank.getCurrentAnnotations();
+	}
+
+	@Benchmark
+	public List<AnnotationSpec> advanceChain() {
+		// down to V in Map<K, ? extends List<V>>
+		return mapParameterBank.advance(TypePath.TYPE_ARGUMENT, 1)
+				.advance(TypePath.WILDCARD_BOUND, 0)
+				.advance(TypePath.TYPE_ARGUMENT, 0)
+				.getCurrentAnnotations();
+	}
+
+	@Benchmark
+	public MethodSignature parseMethodSignature() {
+		return AnnotationAwareSignatures.parseMethodSignature(SIGNATURE, mapping, CONTEXT);
+	}
+
+	@Benchmark
+	public TypeName parseDescriptor() {
+		return AnnotationAwareDescriptors.parseDesc(RETURN_DESCRIPTOR, mapping.getBank(RETURN), CONTEXT);
+	}
+}
@@ -19,7 +19,9 @@ import static net.fabricmc.mappingpoet.FieldBuilder.parseAnnotation;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
@@ -37,6 +39,7 @@ import org.objectweb.asm.tree.InnerClassNode;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
+import net.fabricmc.mappingpoet.jfr.ClassBuildEvent;
 import net.fabricmc.mappingpoet.signature.AnnotationAwareDescriptors;
 import net.fabricmc.mappingpoet.signature.AnnotationAwareSignatures;
 import net.fabricmc.mappingpoet.signature.ClassSignature;
@@ -56,6 +59,7 @@ public class ClassBuilder {
 
 	private final TypeSpec.Builder builder;
 	private final List<ClassBuilder> innerClasses = new ArrayList<>();
+	private Map<String, InnerClassNode> innerClassNodes;
 	private final Environment environment;
 
 	private final ClassSignature signature; // not really signature
@@ -126,8 +130,17 @@ public class ClassBuilder {
 	}
 
 	public void addMembers() {
+		ClassBuildEvent event = new ClassBuildEvent();
+		event.begin();
 		addMethods();
 		addFields();
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.className = classNode.name;
+			event.members = builder.methodSpecs.size() + builder.fieldSpecs.size();
+			event.commit();
+		}
 	}
 
 	private ClassSignature setupSignature() {
@@ -173,9 +186,7 @@ public class ClassBuilder {
 		}
 
 		return builder
-				.addModifiers(new ModifierBuilder(classNode.access)
-						.checkUnseal(classNode, environment)
-						.getModifiers(ModifierBuilder.getType(enumClass, recordClass)));
+				.addModifiers(ModifierBuilder.getModifiers(classNode.access, ModifierBuilder.getType(enumClass, recordClass), ModifierBuilder.needsUnseal(classNode, environment)));
 	}
 
 	private void addInterfaces() {
@@ -328,18 +339,24 @@ public class ClassBuilder {
 		mappings.addClassDoc(builder::addJavadoc, classNode.name);
 	}
 
-	public void addInnerClass(ClassBuilder classBuilder) {
-		InnerClassNode innerClassNode = null;
+	private InnerClassNode getInnerClassNode(String name) {
+		if (innerClassNodes == null) {
+			// index once, nests with hundreds of inner classes would otherwise scan the list for each of them
+			innerClassNodes = new HashMap<>();
 
-		if (classNode.innerClasses != null) {
-			for (InnerClassNode node : classNode.innerClasses) {
-				if (node.name.equals(classBuilder.classNode.name)) {
-					innerClassNode = node;
-					break;
+			if (classNode.innerClasses != null) {
+				for (InnerClassNode node : classNode.innerClasses) {
+					innerClassNodes.putIfAbsent(node.name, node);
 				}
 			}
 		}
 
+		return innerClassNodes.get(name);
+	}
+
+	public void addInnerClass(ClassBuilder classBuilder) {
+		InnerClassNode innerClassNode = getInnerClassNode(classBuilder.classNode.name);
+
 		if (innerClassNode == null) {
 			// fallback
 			classBuilder.builder.addModifiers(javax.lang.model.element.Modifier.PUBLIC);
@@ -356,9 +373,9 @@ public class ClassBuilder {
 			}
 
 			classBuilder.builder.modifiers.remove(javax.lang.model.element.Modifier.PUBLIC); // this modifier may come from class access
-			classBuilder.builder.addModifiers(new ModifierBuilder(innerClassNode.access)
-					.checkUnseal(classBuilder.classNode, environment)
-					.getModifiers(ModifierBuilder.getType(classBuilder.enumClass, classBuilder.recordClass)));
+			classBuilder.builder.addModifiers(ModifierBuilder.getModifiers(innerClassNode.access,
+					ModifierBuilder.getType(classBuilder.enumClass, classBuilder.recordClass),
+					ModifierBuilder.needsUnseal(classBuilder.classNode, environment)));
 
 			if (!Modifier.isStatic(innerClassNode.access)) {
 				classBuilder.instanceInner = true;
@@ -396,6 +413,8 @@ public class ClassBuilder {
 			builder.addType(innerCb.build());
 		}
 
+		// the inner builders are done once their specs are added
+		innerClasses.clear();
 		return builder.build();
 	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.squareup.javapoet.TypeSpec;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A top-level class and all of its inner classes, which end up in one source file.
+ *
+ * <p>Nests are independent of each other once the whole input is indexed,
+ * so they can be built in any order or in parallel.
+ */
+final class ClassNest {
+	private final String name;
+	private final List<ClassNode> classes = new ArrayList<>();
+
+	private ClassNest(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Splits classes sorted by name into nests and clears the given list.
+	 *
+	 * <p>Inner classes always sort right after their top-level class, as {@code $}
+	 * comes before every other character allowed in a class name.
+	 */
+	static ClassNest[] group(List<ClassNode> sortedClasses) {
+		List<ClassNest> nests = new ArrayList<>();
+		ClassNest current = null;
+
+		for (ClassNode node : sortedClasses) {
+			if (current == null || !current.contains(node.name)) {
+				current = new ClassNest(topLevelName(node.name));
+				nests.add(current);
+			}
+
+			current.classes.add(node);
+		}
+
+		sortedClasses.clear();
+		return nests.toArray(new ClassNest[0]);
+	}
+
+	static String topLevelName(String internalName) {
+		int innerStart = internalName.indexOf('$', internalName.lastIndexOf('/') + 1);
+		return innerStart < 0 ? internalName : internalName.substring(0, innerStart);
+	}
+
+	private boolean contains(String internalName) {
+		return internalName.startsWith(name) && (internalName.length() == name.length() || internalName.charAt(name.length()) == '$');
+	}
+
+	String getName() {
+		return name;
+	}
+
+	String getPackageName() {
+		int packageEnd = name.lastIndexOf('/');
+		return packageEnd < 0 ? "" : name.substring(0, packageEnd).replace('/', '.');
+	}
+
+	/**
+	 * Builds the top-level class with all of its inner classes attached, and
+	 * releases the class nodes of this nest.
+	 *
+	 * @return the built type, or {@code null} if there is nothing to emit
+	 */
+	TypeSpec build(MappingsStore mappings, Environment environment) {
+		Map<String, ClassBuilder> builders = new HashMap<>();
+		ClassBuilder topLevel = null;
+
+		for (ClassNode classNode : classes) {
+			// TODO make sure named jar has valid InnerClasses, use that info instead
+			String name = classNode.name;
+			if (isAnonymous(name)) {
+				continue;
+			}
+
+			// TODO: ensure InnerClasses is remapped, and create ClassName from parent class name
+			ClassBuilder classBuilder = new ClassBuilder(mappings, classNode, environment);
+			int parentEnd = name.lastIndexOf('$');
+
+			if (parentEnd >= 0) {
+				ClassBuilder parent = builders.get(name.substring(0, parentEnd));
+				if (parent == null) {
+					throw new RuntimeException("Could not find parent class: " + name.substring(0, parentEnd) + " for " + name);
+				}
+				parent.addInnerClass(classBuilder);
+			} else {
+				topLevel = classBuilder;
+			}
+
+			classBuilder.addMembers();
+			builders.put(name, classBuilder);
+		}
+
+		classes.clear();
+		return topLevel == null ? null : topLevel.build();
+	}
+
+	// Blocks anonymous classes and their nested classes
+	private static boolean isAnonymous(String name) {
+		int lastSearch = name.length();
+		while (lastSearch != -1) {
+			lastSearch = name.lastIndexOf('$', lastSearch - 1);
+			// names starting with digit is illegal java
+			if (isDigit(name.charAt(lastSearch + 1))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isDigit(char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A long running generation process that keeps mappings and library indexes
+ * loaded, and its code warmed up, between generations.
+ *
+ * <p>A request is the working directory of the client followed by the usual
+ * command line arguments, one per line, and ends with an empty line. The reply
+ * is the output of the generation, and ends with either {@value #OK} or
+ * {@value #FAILED}. A request of just {@value #STOP} shuts the daemon down.
+ */
+final class Daemon {
+	static final String OK = "OK";
+	static final String FAILED = "FAILED";
+	static final String STOP = "--stop";
+	// in memory, a mapping tree takes several times the size of its file
+	private static final long MAPPINGS_WEIGHT_FACTOR = 8;
+	private static final long LIBRARY_ENTRY_WEIGHT = 160;
+
+	private final WarmCache cache;
+
+	private Daemon(long cacheBudget) {
+		this.cache = new WarmCache(cacheBudget);
+	}
+
+	/**
+	 * Serves requests until stopped. The cache budget defaults to half of the
+	 * maximum heap, and can be set in megabytes with {@code -Dmappingpoet.daemon.cacheSize}.
+	 *
+	 * <p>Requests can delete and write files wherever the daemon can, so it only
+	 * listens on a unix domain socket that nobody but its owner can connect to.
+	 *
+	 * @param address the path of a unix domain socket
+	 */
+	static void run(String address) {
+		long budget = Long.getLong("mappingpoet.daemon.cacheSize", Runtime.getRuntime().maxMemory() / 2 >> 20) << 20;
+		Daemon daemon = new Daemon(budget);
+		UnixDomainSocketAddress socketAddress = parseAddress(address);
+
+		// outside of the try, the socket of a running daemon must not be deleted
+		if (isListening(socketAddress)) {
+			throw new IllegalStateException("A mappingpoet daemon is already running on " + address);
+		}
+
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			Files.deleteIfExists(socketAddress.getPath()); // left over from a daemon that was killed
+			bindPrivate(server, socketAddress.getPath());
+			System.out.println("mappingpoet daemon listening on " + address);
+
+			while (true) {
+				try (SocketChannel client = server.accept()) {
+					if (!daemon.serve(client)) {
+						break;
+					}
+				} catch (IOException | UncheckedIOException e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			try {
+				Files.deleteIfExists(socketAddress.getPath());
+			} catch (IOException ignored) {
+				// best effort
+			}
+		}
+	}
+
+	static UnixDomainSocketAddress parseAddress(String address) {
+		return UnixDomainSocketAddress.of(address);
+	}
+
+	/**
+	 * Whether a daemon accepts connections on the socket. The socket of a daemon that
+	 * was killed is left behind, but refuses them.
+	 */
+	private static boolean isListening(UnixDomainSocketAddress address) {
+		if (!Files.exists(address.getPath())) {
+			return false;
+		}
+
+		// the daemon takes the closed connection for an empty request and keeps serving
+		try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			channel.connect(address);
+			return true;
+		} catch (ConnectException e) {
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Binds the socket in a directory only the owner can enter, restricts the socket to
+	 * the owner, and only then moves it into place, so nobody else can connect in between.
+	 */
+	private static void bindPrivate(ServerSocketChannel server, Path socket) throws IOException {
+		Path parent = socket.toAbsolutePath().getParent();
+
+		if (!parent.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			server.bind(UnixDomainSocketAddress.of(socket)); // access follows the directory acls
+			return;
+		}
+
+		Path privateDir = Files.createTempDirectory(parent, ".mappingpoet-daemon", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+		try {
+			Path boundSocket = privateDir.resolve("socket");
+			server.bind(UnixDomainSocketAddress.of(boundSocket));
+			Files.setPosixFilePermissions(boundSocket, PosixFilePermissions.fromString("rw-------"));
+			Files.move(boundSocket, socket, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(privateDir.resolve("socket"));
+			Files.delete(privateDir);
+		}
+	}
+
+	/**
+	 * @return whether to keep serving
+	 */
+	private boolean serve(SocketChannel client) throws IOException {
+		InputStream in = Channels.newInputStream(client);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		PrintStream out = new PrintStream(Channels.newOutputStream(client), true, StandardCharsets.UTF_8);
+
+		String workingDirectory = reader.readLine();
+		List<String> args = new ArrayList<>();
+		String line;
+
+		while ((line = reader.readLine()) != null && !line.isEmpty()) {
+			args.add(line);
+		}
+
+		if (workingDirectory == null) {
+			return true;
+		}
+
+		if (args.size() == 1 && args.get(0).equals(STOP)) {
+			out.println(OK);
+			return false;
+		}
+
+		boolean success;
+
+		try {
+			success = Main.run(args.toArray(new String[0]), Paths.get(workingDirectory), out, this::loadMappings, this::loadLibraries);
+		} catch (Throwable t) {
+			t.printStackTrace(out);
+			success = false;
+		}
+
+		out.println(success ? OK : FAILED);
+		return true;
+	}
+
+	private MappingsStore loadMappings(Path mappings) {
+		try {
+			// hashing the content is far cheaper than parsing it
+			String hash = HexFormat.of().formatHex(digest().digest(Files.readAllBytes(mappings)));
+			long weight = Files.size(mappings) * MAPPINGS_WEIGHT_FACTOR;
+			return cache.get("mappings:" + mappings.toAbsolutePath(), hash, () -> new MappingsStore(mappings), store -> weight);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private LibraryIndex loadLibraries(Path librariesDir) {
+		// the jars themselves are not hashed, their names, sizes and modification times are enough to notice changes
+		MessageDigest digest = digest();
+
+		try (Stream<Path> stream = Files.walk(librariesDir)) {
+			stream.filter(file -> file.getFileName().toString().endsWith(".jar"))
+					.sorted()
+					.forEachOrdered(file -> {
+						try {
+							digest.update((file + "\0" + Files.size(file) + "\0" + Files.getLastModifiedTime(file).toMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		String hash = HexFormat.of().formatHex(digest.digest());
+		return cache.get("libraries:" + librariesDir.toAbsolutePath(), hash, () -> LibraryIndex.scan(librariesDir), index -> index.size() * LIBRARY_ENTRY_WEIGHT);
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
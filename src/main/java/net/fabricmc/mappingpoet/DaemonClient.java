@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * Sends a command line to a running {@link Daemon}.
+ */
+final class DaemonClient {
+	private DaemonClient() {
+	}
+
+	/**
+	 * Runs the arguments on the daemon, and prints its output.
+	 *
+	 * @return whether generation succeeded
+	 */
+	static boolean send(String address, String[] args) {
+		try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			channel.connect(Daemon.parseAddress(address));
+			PrintStream out = new PrintStream(Channels.newOutputStream(channel), false, StandardCharsets.UTF_8);
+			out.println(Paths.get("").toAbsolutePath());
+
+			for (String arg : args) {
+				out.println(arg);
+			}
+
+			out.println();
+			out.flush();
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (line.equals(Daemon.OK)) {
+					return true;
+				}
+
+				if (line.equals(Daemon.FAILED)) {
+					return false;
+				}
+
+				System.out.println(line);
+			}
+
+			System.out.println("daemon closed the connection");
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -39,12 +39,19 @@ import org.objectweb.asm.tree.FieldNode;
 
 import java.util.AbstractMap;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FieldBuilder {
+	private static final int MAX_CACHED_ANNOTATIONS = 1 << 12;
+	// shared by all builders, specs only depend on the annotation itself
+	private static final Map<AnnotationKey, AnnotationSpec> ANNOTATIONS = new ConcurrentHashMap<>();
+
 	private final MappingsStore mappings;
 	private final ClassNode classNode;
 	private final FieldNode fieldNode;
@@ -70,7 +77,29 @@ public class FieldBuilder {
 		mappings.addFieldDoc(enumBuilder::addJavadoc, classNode.name, fieldNode.name, fieldNode.desc);
 	}
 
+	/**
+	 * Converts an annotation, returning the same spec for annotations with equal values.
+	 *
+	 * <p>The same few annotations appear on most members of a jar, and specs are immutable.
+	 */
 	public static AnnotationSpec parseAnnotation(AnnotationNode annotation) {
+		AnnotationKey key = AnnotationKey.of(annotation);
+		AnnotationSpec ret = ANNOTATIONS.get(key);
+
+		if (ret == null) {
+			ret = buildAnnotation(annotation);
+
+			if (ANNOTATIONS.size() >= MAX_CACHED_ANNOTATIONS) {
+				ANNOTATIONS.clear(); // only unique values, such as kotlin metadata, fill it up
+			}
+
+			ANNOTATIONS.putIfAbsent(key, ret);
+		}
+
+		return ret;
+	}
+
+	private static AnnotationSpec buildAnnotation(AnnotationNode annotation) {
 		ClassName annoClassName = (ClassName) typeFromDesc(annotation.desc);
 		AnnotationSpec.Builder builder = AnnotationSpec.builder(annoClassName);
 		List<Object> values = annotation.values;
@@ -108,7 +137,7 @@ public class FieldBuilder {
 			return CodeBlock.builder().add("$T.class", typeFromDesc(((Type) value).getDescriptor())).build();
 		}
 		if (value instanceof AnnotationNode) {
-			return CodeBlock.builder().add(parseAnnotation((AnnotationNode) value).toString()).build();
+			return CodeBlock.builder().add("$L", parseAnnotation((AnnotationNode) value)).build();
 		}
 		throw new IllegalArgumentException(String.format("Don't know how to convert \"%s\" into annotation value", value));
 	}
@@ -376,7 +405,7 @@ public class FieldBuilder {
 
 	private FieldSpec.Builder createBuilder() {
 		FieldSpec.Builder ret = FieldSpec.builder(calculateType(), fieldNode.name)
-				.addModifiers(new ModifierBuilder(fieldNode.access).getModifiers(ModifierBuilder.Type.FIELD));
+				.addModifiers(ModifierBuilder.getModifiers(fieldNode.access, ModifierBuilder.Type.FIELD));
 
 		if ((fieldNode.access & Opcodes.ACC_FINAL) != 0) {
 			ret.initializer(makeInitializer(fieldNode.desc)); // so jd doesn't complain about type mismatch
@@ -511,4 +540,46 @@ public class FieldBuilder {
 	public FieldSpec build() {
 		return builder.build();
 	}
+
+	/**
+	 * The descriptor and values of an annotation, compared by value.
+	 *
+	 * <p>Values are kept as asm has them, except that arrays and nested annotations,
+	 * which asm stores as {@code String[]} and {@link AnnotationNode}, become lists and keys.
+	 */
+	private record AnnotationKey(String desc, List<Object> values) {
+		static AnnotationKey of(AnnotationNode annotation) {
+			if (annotation.values == null) {
+				return new AnnotationKey(annotation.desc, List.of());
+			}
+
+			List<Object> values = new ArrayList<>(annotation.values.size());
+			for (Object value : annotation.values) {
+				values.add(valueKey(value));
+			}
+			return new AnnotationKey(annotation.desc, values);
+		}
+
+		private static Object valueKey(Object value) {
+			if (value instanceof List<?> list) {
+				List<Object> ret = new ArrayList<>(list.size());
+				for (Object each : list) {
+					ret.add(valueKey(each));
+				}
+				return ret;
+			}
+			if (value instanceof String[] enumValue) {
+				return new EnumKey(Arrays.asList(enumValue));
+			}
+			if (value instanceof AnnotationNode annotation) {
+				return of(annotation);
+			}
+			// boxed primitives of different types never equal each other, 1 and 1L stay apart
+			return value;
+		}
+	}
+
+	// wrapped, so enum values never equal a list of strings
+	private record EnumKey(List<String> descAndName) {
+	}
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Collects the time and allocations of each phase of a generation, and counts of
+ * what was generated, to be written out as JSON.
+ *
+ * <p>Phases can run as many tasks over several threads. CPU time and allocations
+ * are summed over all tasks, while the wall time of a phase spans from the start
+ * of its first task to the end of its last one.
+ */
+public final class GenerationReport {
+	static final String MAPPINGS = "mappings";
+	static final String LIBRARIES = "libraries";
+	static final String READ = "read";
+	static final String INDEX = "index";
+	static final String BUILD = "build";
+	static final String RENDER = "render";
+	static final String WRITE = "write";
+	static final String JAVADOC = "javadoc";
+
+	// before the disabled report, whose fields read it
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * A report that records nothing, for when no report is asked for.
+	 */
+	static final GenerationReport DISABLED = new GenerationReport(false);
+
+	private final boolean enabled;
+	private final boolean cpuTime = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+	private final boolean allocations = THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+	private final Map<String, LongAdder> counts = new LinkedHashMap<>();
+
+	public GenerationReport() {
+		this(true);
+	}
+
+	private GenerationReport(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Runs one task of a phase on the current thread and records it.
+	 */
+	<T> T measure(String phase, Supplier<T> task) {
+		if (!enabled) {
+			return task.get();
+		}
+
+		long cpuStart = cpuTime ? THREADS.getCurrentThreadCpuTime() : 0;
+		long allocatedStart = allocatedBytes();
+		long start = System.nanoTime();
+
+		try {
+			return task.get();
+		} finally {
+			long end = System.nanoTime();
+			Phase record = phase(phase);
+			record.start.accumulate(start);
+			record.end.accumulate(end);
+			record.cpuNanos.add(cpuTime ? THREADS.getCurrentThreadCpuTime() - cpuStart : 0);
+			record.allocatedBytes.add(allocatedBytes() - allocatedStart);
+			record.tasks.increment();
+		}
+	}
+
+	void measure(String phase, Runnable task) {
+		measure(phase, () -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Counts a built top-level type, with its members and nested types.
+	 */
+	void count(TypeSpec typeSpec) {
+		if (!enabled) {
+			return;
+		}
+
+		long[] totals = new long[5];
+		count(typeSpec, totals);
+		count("classes", totals[0]);
+		count("methods", totals[1]);
+		count("fields", totals[2]);
+		count("parameters", totals[3]);
+		count("annotations", totals[4]);
+	}
+
+	/**
+	 * Counts what a sink has written, for sinks that can tell.
+	 */
+	void countOutput(long files, long bytes, double bytesPerSecond) {
+		if (!enabled) {
+			return;
+		}
+
+		count("writtenFiles", files);
+		count("writtenBytes", bytes);
+		count("writtenBytesPerSecond", Math.round(bytesPerSecond));
+	}
+
+	private static void count(TypeSpec typeSpec, long[] totals) {
+		totals[0]++;
+		totals[4] += typeSpec.annotations.size();
+
+		for (MethodSpec method : typeSpec.methodSpecs) {
+			totals[1]++;
+			totals[4] += method.annotations.size();
+
+			for (ParameterSpec parameter : method.parameters) {
+				totals[3]++;
+				totals[4] += parameter.annotations.size();
+			}
+		}
+
+		for (FieldSpec field : typeSpec.fieldSpecs) {
+			totals[2]++;
+			totals[4] += field.annotations.size();
+		}
+
+		for (TypeSpec enumConstant : typeSpec.enumConstants.values()) {
+			totals[2]++; // enum constants are fields in the class file
+			totals[4] += enumConstant.annotations.size();
+		}
+
+		for (TypeSpec nested : typeSpec.typeSpecs) {
+			count(nested, totals);
+		}
+	}
+
+	private void count(String name, long amount) {
+		LongAdder adder;
+
+		synchronized (counts) {
+			adder = counts.computeIfAbsent(name, k -> new LongAdder());
+		}
+
+		adder.add(amount);
+	}
+
+	private Phase phase(String name) {
+		synchronized (phases) {
+			return phases.computeIfAbsent(name, k -> new Phase());
+		}
+	}
+
+	private long allocatedBytes() {
+		return allocations ? ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	public void write(Path file) throws IOException {
+		Files.writeString(file, toJson());
+	}
+
+	/**
+	 * Phases are listed in the order they first ran in. CPU time and allocations are
+	 * {@code -1} when the JVM cannot measure them.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\n\t\"version\": 1,\n\t\"phases\": {");
+		long start = Long.MAX_VALUE;
+		long end = Long.MIN_VALUE;
+		String separator = "\n";
+
+		synchronized (phases) {
+			for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+				Phase phase = entry.getValue();
+				start = Math.min(start, phase.start.get());
+				end = Math.max(end, phase.end.get());
+				json.append(separator).append("\t\t\"").append(entry.getKey()).append("\": {")
+						.append("\"wallNanos\": ").append(phase.end.get() - phase.start.get())
+						.append(", \"cpuNanos\": ").append(cpuTime ? phase.cpuNanos.sum() : -1)
+						.append(", \"allocatedBytes\": ").append(allocations ? phase.allocatedBytes.sum() : -1)
+						.append(", \"tasks\": ").append(phase.tasks.sum())
+						.append('}');
+				separator = ",\n";
+			}
+		}
+
+		json.append("\n\t},\n\t\"counts\": {");
+		separator = "\n";
+
+		synchronized (counts) {
+			for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+				json.append(separator).append("\t\t\"").append(entry.getKey()).append("\": ").append(entry.getValue().sum());
+				separator = ",\n";
+			}
+		}
+
+		json.append("\n\t},\n\t\"wallNanos\": ").append(start <= end ? end - start : 0).append("\n}\n");
+		return json.toString();
+	}
+
+	private static final class Phase {
+		final LongAccumulator start = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		final LongAccumulator end = new LongAccumulator(Math::max, Long.MIN_VALUE);
+		final LongAdder cpuNanos = new LongAdder();
+		final LongAdder allocatedBytes = new LongAdder();
+		final LongAdder tasks = new LongAdder();
+	}
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InnerClassNode;
+
+import net.fabricmc.mappingpoet.Environment.NestedClassInfo;
+import net.fabricmc.mappingpoet.input.InputSource;
+import net.fabricmc.mappingpoet.jfr.ClassWriteEvent;
+import net.fabricmc.mappingpoet.output.OutputSink;
+
+/**
+ * Generates sources for one or more inputs into a single source tree.
+ *
+ * <p>Inputs are indexed concurrently into one {@link Environment}. When a class is
+ * present in several inputs, the {@link DuplicatePolicy} decides which one is used.
+ */
+public final class Generator {
+	// larger buffers are not kept for the next file
+	private static final int MAX_RENDER_BUFFER = 1 << 20;
+	// rendering runs on the common pool, so there are only a few of these
+	private static final ThreadLocal<StringBuilder> RENDER_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1 << 14));
+	// enough nests in flight to keep the pool busy while the oldest one is slow
+	private static final int WINDOW_SIZE = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 4);
+	// class files read ahead of the pool, beyond that the reading thread parses them itself
+	private static final int MAX_PENDING_CLASSES = Math.max(16, ForkJoinPool.getCommonPoolParallelism() * 64);
+	// classes indexed per task, indexing one is too quick to be measured on its own
+	private static final int INDEX_CHUNK_SIZE = 1024;
+
+	private final MappingsStore mappings;
+	private final List<InputSource> inputs;
+	private final Path librariesDir;
+	private final LibraryIndex libraryIndex;
+	private final DuplicatePolicy duplicatePolicy;
+	private final int shardIndex;
+	private final int shardCount;
+	private final GenerationReport report;
+	private final boolean directEmit;
+
+	private Generator(Builder builder) {
+		this.mappings = builder.mappings;
+		this.inputs = List.copyOf(builder.inputs);
+		this.librariesDir = builder.librariesDir;
+		this.libraryIndex = builder.libraryIndex;
+		this.duplicatePolicy = builder.duplicatePolicy;
+		this.shardIndex = builder.shardIndex;
+		this.shardCount = builder.shardCount;
+		this.report = builder.report;
+		this.directEmit = builder.directEmit;
+	}
+
+	public static Builder builder(MappingsStore mappings) {
+		return new Builder(mappings);
+	}
+
+	/**
+	 * Generates sources for all classes of the inputs. The sink receives the
+	 * files in the order of their class names, and is not closed by this method.
+	 */
+	public void generate(OutputSink sink) {
+		LibraryIndex libraries = libraryIndex != null ? libraryIndex : librariesDir != null ? report.measure(GenerationReport.LIBRARIES, () -> LibraryIndex.scan(librariesDir)) : null;
+		// copied, entries of the inputs take precedence over the libraries
+		Map<String, NestedClassInfo> nestedClasses = libraries == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(libraries.nestedClasses());
+
+		// read one after another, parsed on the common pool
+		List<Map<String, IndexedClass>> inputClasses = new ArrayList<>(inputs.size());
+		for (InputSource input : inputs) {
+			inputClasses.add(report.measure(GenerationReport.READ, () -> readClasses(input)));
+		}
+
+		Map<String, Collection<String>> supers = new ConcurrentHashMap<>();
+		Set<String> sealedClasses = ConcurrentHashMap.newKeySet(); // their subclsses/impls need non-sealed modifier
+		ClassNest[] nests = index(inputClasses, supers, sealedClasses, nestedClasses);
+
+		Set<String> packageNames = new TreeSet<>();
+		for (ClassNest nest : nests) {
+			packageNames.add(nest.getPackageName());
+		}
+		report.measure(GenerationReport.WRITE, () -> prepare(sink, packageNames));
+
+		// all metadata is known at this point, nests no longer depend on each other
+		Environment environment = new Environment(supers, sealedClasses, nestedClasses);
+		// built in parallel, but handed out in name order so outputs are reproducible
+		writeInOrder(sink, nests, environment);
+	}
+
+	/**
+	 * Builds and renders nests on the common pool, and writes them in order.
+	 *
+	 * <p>At most {@link #WINDOW_SIZE} nests are in flight. The oldest is written and
+	 * dropped before the next one is started, so no matter how far ahead the others
+	 * get, only a window of rendered sources is ever held.
+	 */
+	private void writeInOrder(OutputSink sink, ClassNest[] nests, Environment environment) {
+		Deque<CompletableFuture<SourceFile>> window = new ArrayDeque<>(WINDOW_SIZE);
+		int next = 0;
+
+		try {
+			while (next < nests.length || !window.isEmpty()) {
+				while (next < nests.length && window.size() < WINDOW_SIZE) {
+					ClassNest nest = nests[next];
+					nests[next++] = null; // so the nest can be collected as soon as it is written
+					window.add(CompletableFuture.supplyAsync(() -> buildNest(nest, environment), ForkJoinPool.commonPool()));
+				}
+
+				SourceFile source = join(window.poll());
+
+				if (source != null) {
+					try {
+						report.measure(GenerationReport.WRITE, () -> write(sink, source));
+					} catch (Throwable t) {
+						throw new RuntimeException("Failed to write class "+source.fileName(), t);
+					}
+				}
+			}
+		} finally {
+			// after a failure, nests that have not started yet are skipped
+			for (CompletableFuture<SourceFile> pending : window) {
+				pending.cancel(false);
+			}
+		}
+	}
+
+	private static SourceFile join(CompletableFuture<SourceFile> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause; // already says which class failed
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Merges the classes of all inputs, collects the metadata needed to build them,
+	 * and groups the classes of this shard into nests.
+	 */
+	private ClassNest[] index(List<Map<String, IndexedClass>> inputClasses, Map<String, Collection<String>> supers, Set<String> sealedClasses, Map<String, NestedClassInfo> nestedClasses) {
+		List<IndexedClass> classes = report.measure(GenerationReport.INDEX, () -> new ArrayList<>(merge(inputClasses)));
+		// measured per chunk, as this thread takes part in the stream
+		IntStream.range(0, (classes.size() + INDEX_CHUNK_SIZE - 1) / INDEX_CHUNK_SIZE).parallel().forEach(chunk -> report.measure(GenerationReport.INDEX, () -> {
+			for (IndexedClass indexed : classes.subList(chunk * INDEX_CHUNK_SIZE, Math.min(classes.size(), (chunk + 1) * INDEX_CHUNK_SIZE))) {
+				indexHierarchy(indexed, supers, sealedClasses, nestedClasses);
+			}
+		}));
+
+		return report.measure(GenerationReport.INDEX, () -> group(classes));
+	}
+
+	private static ClassNest[] group(List<IndexedClass> classes) {
+		List<ClassNode> generated = new ArrayList<>();
+		for (IndexedClass indexed : classes) {
+			if (indexed.node() != null) {
+				generated.add(indexed.node());
+			}
+		}
+
+		//Sort all the classes making sure that inner classes come after the parent classes
+		generated.sort(Comparator.comparing(o -> o.name));
+		return ClassNest.group(generated);
+	}
+
+	private static void indexHierarchy(IndexedClass indexed, Map<String, Collection<String>> supers, Set<String> sealedClasses, Map<String, NestedClassInfo> nestedClasses) {
+		List<String> superNames = new ArrayList<>();
+		if (indexed.superName() != null && !indexed.superName().equals("java/lang/Object")) {
+			superNames.add(indexed.superName());
+		}
+		Collections.addAll(superNames, indexed.interfaces());
+		if (!superNames.isEmpty()) {
+			supers.put(indexed.name(), superNames);
+		}
+
+		for (InnerClassNode e : indexed.innerClasses()) {
+			if (e.outerName != null) {
+				// null -> declared in method/initializer
+				nestedClasses.put(e.name, new NestedClassInfo(e.outerName, !Modifier.isStatic(e.access), e.innerName));
+			}
+		}
+
+		if (indexed.sealed()) {
+			sealedClasses.add(indexed.name());
+		}
+	}
+
+	/**
+	 * Whether the class of an internal name is generated by this shard, decided by its
+	 * top-level class so that nests are never split.
+	 */
+	private boolean isInShard(String internalName) {
+		// String.hashCode is specified, so every process agrees on the shard of a class
+		return shardCount == 1 || Math.floorMod(ClassNest.topLevelName(internalName).hashCode(), shardCount) == shardIndex;
+	}
+
+	private static void prepare(OutputSink sink, Set<String> packageNames) {
+		try {
+			sink.prepare(packageNames);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void write(OutputSink sink, SourceFile source) {
+		ClassWriteEvent event = new ClassWriteEvent();
+		event.begin();
+
+		try {
+			sink.write(source.packageName(), source.fileName(), source.content());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.className = source.className();
+			event.bytes = source.content().getBytes(StandardCharsets.UTF_8).length;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Reads the hierarchy of all classes of an input, and the whole class only for the
+	 * classes of this shard, so a shard holds little more than its own classes.
+	 *
+	 * <p>Class files are read on this thread and parsed on the common pool. When the
+	 * pool falls behind, this thread parses them itself rather than reading further.
+	 * Parses on the pool are measured as tasks of their own, the rest is measured by
+	 * the caller.
+	 */
+	private Map<String, IndexedClass> readClasses(InputSource input) {
+		Map<String, IndexedClass> classes = new ConcurrentHashMap<>();
+		Semaphore pending = new Semaphore(MAX_PENDING_CLASSES);
+		Phaser parsed = new Phaser(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger entries = new AtomicInteger();
+
+		try {
+			input.forEachClass(classFile -> {
+				// numbered in the order of the input, as parses finish in any order
+				int entry = entries.getAndIncrement();
+
+				if (!pending.tryAcquire()) {
+					readClass(classes, classFile, entry);
+					return;
+				}
+
+				parsed.register();
+				ForkJoinPool.commonPool().execute(() -> {
+					try {
+						report.measure(GenerationReport.READ, () -> readClass(classes, classFile, entry));
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					} finally {
+						pending.release();
+						parsed.arriveAndDeregister();
+					}
+				});
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			parsed.arriveAndAwaitAdvance();
+		}
+
+		if (failure.get() instanceof RuntimeException e) {
+			throw e;
+		} else if (failure.get() instanceof Error e) {
+			throw e;
+		}
+
+		return classes;
+	}
+
+	private void readClass(Map<String, IndexedClass> classes, byte[] classFile, int entry) {
+		IndexedClass indexed = IndexedClass.read(classFile, entry, this::isInShard);
+		// the later class file wins, as it did when they were read one after another
+		classes.merge(indexed.name(), indexed, (a, b) -> a.entry() > b.entry() ? a : b);
+	}
+
+	private Collection<IndexedClass> merge(List<Map<String, IndexedClass>> inputClasses) {
+		if (inputClasses.size() == 1) {
+			return inputClasses.get(0).values();
+		}
+
+		Map<String, IndexedClass> merged = new HashMap<>();
+
+		for (Map<String, IndexedClass> classes : inputClasses) {
+			for (IndexedClass indexed : classes.values()) {
+				IndexedClass present = merged.putIfAbsent(indexed.name(), indexed);
+
+				if (present != null) {
+					if (duplicatePolicy == DuplicatePolicy.FAIL) {
+						throw new IllegalStateException("Duplicate class " + indexed.name() + " in inputs");
+					}
+
+					if (duplicatePolicy == DuplicatePolicy.LAST) {
+						merged.put(indexed.name(), indexed);
+					}
+				}
+			}
+
+			classes.clear();
+		}
+
+		return merged.values();
+	}
+
+	private SourceFile buildNest(ClassNest nest, Environment environment) {
+		try {
+			TypeSpec typeSpec = report.measure(GenerationReport.BUILD, () -> nest.build(mappings, environment));
+			if (typeSpec == null) return null;
+			report.count(typeSpec);
+
+			// rendering is the expensive part, so it happens here rather than in the ordered sink
+			String content = report.measure(GenerationReport.RENDER, () -> render(JavaFile.builder(nest.getPackageName(), typeSpec).build()));
+			return new SourceFile(nest.getName(), nest.getPackageName(), typeSpec.name + ".java", content);
+		} catch (Throwable t) {
+			throw new RuntimeException("Failed to process class "+nest.getName(), t);
+		}
+	}
+
+	private String render(JavaFile javaFile) {
+		StringBuilder buffer = RENDER_BUFFER.get();
+		buffer.setLength(0);
+
+		try {
+			if (directEmit) {
+				StubEmitter.writeTo(javaFile, buffer);
+			} else {
+				javaFile.writeTo(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // cannot happen with a StringBuilder
+		}
+
+		String ret = buffer.toString();
+
+		if (buffer.capacity() > MAX_RENDER_BUFFER) {
+			RENDER_BUFFER.remove();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Decides which input a class comes from when several inputs contain it.
+	 */
+	public enum DuplicatePolicy {
+		/**
+		 * The class from the input added first is used.
+		 */
+		FIRST,
+		/**
+		 * The class from the input added last is used.
+		 */
+		LAST,
+		/**
+		 * Generation fails.
+		 */
+		FAIL
+	}
+
+	private record SourceFile(String className, String packageName, String fileName, String content) {
+	}
+
+	public static final class Builder {
+		private final MappingsStore mappings;
+		private final List<InputSource> inputs = new ArrayList<>();
+		private Path librariesDir;
+		private LibraryIndex libraryIndex;
+		private DuplicatePolicy duplicatePolicy = DuplicatePolicy.FIRST;
+		private int shardIndex = 0;
+		private int shardCount = 1;
+		private GenerationReport report = GenerationReport.DISABLED;
+		private boolean directEmit;
+
+		private Builder(MappingsStore mappings) {
+			this.mappings = mappings;
+		}
+
+		public Builder input(InputSource input) {
+			inputs.add(input);
+			return this;
+		}
+
+		/**
+		 * Sets a directory of jars that generated classes refer to, used to
+		 * tell which of their nested classes are instance inner classes.
+		 */
+		public Builder libraries(Path librariesDir) {
+			this.librariesDir = librariesDir;
+			this.libraryIndex = null;
+			return this;
+		}
+
+		/**
+		 * Like {@link #libraries(Path)}, with libraries that are already scanned.
+		 */
+		public Builder libraries(LibraryIndex libraryIndex) {
+			this.librariesDir = null;
+			this.libraryIndex = libraryIndex;
+			return this;
+		}
+
+		public Builder duplicatePolicy(DuplicatePolicy duplicatePolicy) {
+			this.duplicatePolicy = duplicatePolicy;
+			return this;
+		}
+
+		/**
+		 * Only generates the top-level classes, with their inner classes, that fall into
+		 * the given shard. All inputs are still indexed, so the sources of all shards
+		 * together are the same as those of an unsharded run.
+		 *
+		 * @param index the shard to generate, from {@code 0} to {@code count - 1}
+		 * @param count the number of shards
+		 */
+		public Builder shard(int index, int count) {
+			if (count < 1 || index < 0 || index >= count) {
+				throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+			}
+
+			this.shardIndex = index;
+			this.shardCount = count;
+			return this;
+		}
+
+		/**
+		 * Records the phases of generation into the report. Library scans are only
+		 * recorded when given as a {@linkplain #libraries(Path) directory}.
+		 */
+		public Builder report(GenerationReport report) {
+			this.report = report;
+			return this;
+		}
+
+		/**
+		 * Renders sources with the imports collected from the built types, instead of
+		 * a first rendering pass. The sources are the same either way.
+		 */
+		public Builder directEmit(boolean directEmit) {
+			this.directEmit = directEmit;
+			return this;
+		}
+
+		public Generator build() {
+			if (inputs.isEmpty()) {
+				throw new IllegalStateException("No inputs");
+			}
+
+			return new Generator(this);
+		}
+	}
+}
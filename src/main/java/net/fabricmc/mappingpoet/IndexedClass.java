@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InnerClassNode;
+
+/**
+ * What indexing the hierarchy needs of a class, read without its members, and the
+ * whole class only when sources are generated for it.
+ *
+ * @param entry the position of the class file in its input, of two class files of the
+ * same name in one input the later one is kept
+ * @param node the class, or {@code null} if it is only indexed
+ */
+record IndexedClass(int entry, String name, String superName, String[] interfaces, List<InnerClassNode> innerClasses, boolean sealed, ClassNode node) {
+	/**
+	 * Reads a class file.
+	 *
+	 * @param generated whether sources are generated for the class of an internal name
+	 */
+	static IndexedClass read(byte[] classFile, int entry, Predicate<String> generated) {
+		ClassReader reader = new ClassReader(classFile);
+		// the name and supers are in the header, only the attributes need a visit
+		AttributeVisitor visitor = new AttributeVisitor();
+		reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		String name = reader.getClassName();
+		ClassNode node = null;
+
+		if (generated.test(name)) {
+			node = new ClassNode();
+			reader.accept(node, ClassReader.SKIP_CODE);
+		}
+
+		return new IndexedClass(entry, name, reader.getSuperName(), reader.getInterfaces(), visitor.innerClasses, visitor.sealed, node);
+	}
+
+	private static final class AttributeVisitor extends ClassVisitor {
+		final List<InnerClassNode> innerClasses = new ArrayList<>();
+		boolean sealed;
+
+		AttributeVisitor() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visitInnerClass(String name, String outerName, String innerName, int access) {
+			innerClasses.add(new InnerClassNode(name, outerName, innerName, access));
+		}
+
+		@Override
+		public void visitPermittedSubclass(String permittedSubclass) {
+			sealed = true;
+		}
+	}
+}
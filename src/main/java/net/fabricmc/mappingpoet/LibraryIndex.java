@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.mappingpoet.Environment.ClassNamePointer;
+import net.fabricmc.mappingpoet.Environment.NestedClassInfo;
+import net.fabricmc.mappingpoet.input.InputSource;
+import net.fabricmc.mappingpoet.jfr.LibraryScanEvent;
+
+/**
+ * Nested class information of the libraries that generated classes refer to.
+ *
+ * <p>An index does not change once scanned, so it can be shared by any number of generations.
+ */
+public final class LibraryIndex {
+	private final Map<String, NestedClassInfo> nestedClasses;
+	private final Map<String, ClassNamePointer> classNames;
+
+	private LibraryIndex(Map<String, NestedClassInfo> nestedClasses, Map<String, ClassNamePointer> classNames) {
+		this.nestedClasses = Collections.unmodifiableMap(nestedClasses);
+		this.classNames = Collections.unmodifiableMap(classNames);
+	}
+
+	/**
+	 * Scans all jars in a directory and its subdirectories.
+	 */
+	public static LibraryIndex scan(Path librariesDir) {
+		Map<String, NestedClassInfo> instanceInnerClasses = new ConcurrentHashMap<>();
+		Map<String, ClassNamePointer> classNames = new ConcurrentHashMap<>();
+		LibraryScanEvent event = new LibraryScanEvent();
+		event.begin();
+
+		try {
+			Files.walkFileTree(librariesDir, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (!file.getFileName().toString().endsWith(".jar")) {
+						return FileVisitResult.CONTINUE;
+					}
+
+					event.jars++;
+					InputSource.jar(file).forEachClass(classFile -> {
+						ClassReader reader = new ClassReader(classFile);
+						reader.accept(new ClassVisitor(Opcodes.ASM9) {
+							@Override
+							public void visitInnerClass(String name, String outerName, String simpleName, int access) {
+								instanceInnerClasses.put(name, new NestedClassInfo(outerName, !Modifier.isStatic(access), simpleName));
+								if (outerName != null) {
+									classNames.put(name, new ClassNamePointer(simpleName, outerName));
+								}
+							}
+						}, ClassReader.SKIP_CODE);
+					});
+
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.directory = librariesDir.toString();
+			event.nestedClasses = instanceInnerClasses.size();
+			event.commit();
+		}
+
+		return new LibraryIndex(instanceInnerClasses, classNames);
+	}
+
+	public Map<String, NestedClassInfo> nestedClasses() {
+		return nestedClasses;
+	}
+
+	public Map<String, ClassNamePointer> classNames() {
+		return classNames;
+	}
+
+	public int size() {
+		return nestedClasses.size();
+	}
+}
@@ -15,205 +15,289 @@
  */
 package net.fabricmc.mappingpoet;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Modifier;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.function.Function;
+import java.util.zip.Deflater;
 
-import com.squareup.javapoet.JavaFile;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.InnerClassNode;
-
-import net.fabricmc.mappingpoet.Environment.ClassNamePointer;
-import net.fabricmc.mappingpoet.Environment.NestedClassInfo;
+import net.fabricmc.mappingpoet.input.InputSource;
+import net.fabricmc.mappingpoet.jd.JavadocStage;
+import net.fabricmc.mappingpoet.jfr.MappingLoadEvent;
+import net.fabricmc.mappingpoet.output.MemoryOutputSink;
+import net.fabricmc.mappingpoet.output.OutputSink;
+import net.fabricmc.mappingpoet.output.PooledDirectoryOutputSink;
+import net.fabricmc.mappingpoet.output.ZipOutputSink;
 
 public class Main {
 
 	public static void main(String[] args) {
-		if (args.length != 3 && args.length != 4) {
-			System.out.println("<mappings> <inputJar> <outputDir> [<librariesDir>]");
+		if (args.length == 2 && args[0].equals("--daemon")) {
+			Daemon.run(args[1]);
 			return;
 		}
-		Path mappings = Paths.get(args[0]);
-		Path inputJar = Paths.get(args[1]);
-		Path outputDirectory = Paths.get(args[2]);
-		Path librariesDir = args.length < 4 ? null : Paths.get(args[3]);
 
-		try {
-			if (Files.exists(outputDirectory)) {
-				try (var stream = Files.walk(outputDirectory)) {
-					stream.sorted(Comparator.reverseOrder())
-					.map(Path::toFile)
-					.forEach(File::delete);
+		if (args.length >= 2 && args[0].equals("--client")) {
+			System.exit(DaemonClient.send(args[1], Arrays.copyOfRange(args, 2, args.length)) ? 0 : 1);
+		}
+
+		run(args, Paths.get(""), System.out, MappingsStore::new, LibraryIndex::scan);
+	}
+
+	/**
+	 * Runs the command line, resolving relative paths against the working directory.
+	 *
+	 * @return whether sources were generated
+	 */
+	static boolean run(String[] args, Path workingDirectory, PrintStream out, Function<Path, MappingsStore> mappingsLoader, Function<Path, LibraryIndex> librariesLoader) {
+		List<String> arguments = new ArrayList<>();
+		List<Path> extraInputs = new ArrayList<>();
+		Generator.DuplicatePolicy duplicatePolicy = Generator.DuplicatePolicy.FIRST;
+		int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		int shardIndex = 0;
+		int shardCount = 1;
+		Path reportFile = null;
+		Path javadocDir = null;
+		Path mappingIndex = null;
+		boolean compactMappings = false;
+		boolean directEmit = false;
+		int writerThreads = defaultWriterThreads();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--compression-level") && i + 1 < args.length) {
+				compressionLevel = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--input") && i + 1 < args.length) {
+				extraInputs.add(workingDirectory.resolve(args[++i]));
+			} else if (args[i].equals("--duplicates") && i + 1 < args.length) {
+				duplicatePolicy = Generator.DuplicatePolicy.valueOf(args[++i].toUpperCase(Locale.ROOT));
+			} else if (args[i].equals("--javadoc") && i + 1 < args.length) {
+				javadocDir = workingDirectory.resolve(args[++i]);
+			} else if (args[i].equals("--writer-threads") && i + 1 < args.length) {
+				writerThreads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--direct-emit")) {
+				directEmit = true;
+			} else if (args[i].equals("--compact-mappings")) {
+				compactMappings = true;
+			} else if (args[i].equals("--mapping-index") && i + 1 < args.length) {
+				mappingIndex = workingDirectory.resolve(args[++i]);
+			} else if (args[i].equals("--report") && i + 1 < args.length) {
+				reportFile = workingDirectory.resolve(args[++i]);
+			} else if (args[i].equals("--shard") && i + 1 < args.length) {
+				String[] shard = args[++i].split("/", 2);
+				shardIndex = Integer.parseInt(shard[0]);
+				shardCount = shard.length < 2 ? 0 : Integer.parseInt(shard[1]);
+
+				if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+					out.println("invalid shard " + args[i] + ", expected <index>/<count> with 0 <= index < count");
+					return false;
 				}
+			} else {
+				arguments.add(args[i]);
 			}
+		}
+
+		if (arguments.size() != 3 && arguments.size() != 4) {
+			out.println("--daemon <socketPath>");
+			out.println("--client <socketPath> <arguments>...");
+			out.println("[--compression-level <level>] [--writer-threads <count>] [--direct-emit] [--input <inputJar|classesDir>]... [--duplicates first|last|fail] [--shard <index>/<count>] [--report <reportJson>] [--javadoc <docsDir> [--compact-mappings]] [--mapping-index <indexFile>] <mappings> <inputJar|classesDir> <outputDir|outputJar> [<librariesDir>]");
+			return false;
+		}
+		Path mappings = workingDirectory.resolve(arguments.get(0));
+		Path inputJar = workingDirectory.resolve(arguments.get(1));
+		Path output = workingDirectory.resolve(arguments.get(2));
+		Path librariesDir = arguments.size() < 4 ? null : workingDirectory.resolve(arguments.get(3));
+		String outputName = output.getFileName().toString();
+		boolean outputArchive = outputName.endsWith(".jar") || outputName.endsWith(".zip");
+
+		// every shard would replace the archive, the index and the docs of the others
+		if (shardCount > 1 && (outputArchive || mappingIndex != null || javadocDir != null)) {
+			out.println("--shard only merges into an output directory, and cannot be combined with --mapping-index or --javadoc");
+			return false;
+		}
 
-			Files.createDirectories(outputDirectory);
+		try {
+			if (outputArchive) {
+				Files.deleteIfExists(output);
+
+				if (output.toAbsolutePath().getParent() != null) {
+					Files.createDirectories(output.toAbsolutePath().getParent());
+				}
+			} else {
+				// shards write into the same directory, so cleaning it is left to whoever starts them
+				if (shardCount == 1 && Files.exists(output)) {
+					try (var stream = Files.walk(output)) {
+						stream.sorted(Comparator.reverseOrder())
+						.map(Path::toFile)
+						.forEach(File::delete);
+					}
+				}
+
+				Files.createDirectories(output);
+			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 
 		if (!Files.exists(mappings)) {
-			System.out.println("could not find mappings");
-			return;
+			out.println("could not find mappings");
+			return false;
 		}
 
-		if (!Files.exists(inputJar)) {
-			System.out.println("could not find input jar");
-			return;
+		GenerationReport report = reportFile == null ? GenerationReport.DISABLED : new GenerationReport();
+		MappingLoadEvent mappingLoadEvent = new MappingLoadEvent();
+		mappingLoadEvent.begin();
+		MappingsStore loadedMappings = report.measure(GenerationReport.MAPPINGS, () -> mappingsLoader.apply(mappings));
+		// the loaded store may be shared by the daemon, the index comes with a store of its own
+		MappingsStore mappingsStore = mappingIndex == null ? loadedMappings : loadedMappings.withIndex();
+		mappingLoadEvent.end();
+
+		if (javadocDir != null) {
+			mappingsStore = mappingsStore.withSearchIndex();
 		}
 
-		generate(mappings, inputJar, outputDirectory, librariesDir);
-	}
+		if (mappingLoadEvent.shouldCommit()) {
+			mappingLoadEvent.path = mappings.toString();
+			mappingLoadEvent.commit();
+		}
 
-	public static void generate(Path mappings, Path inputJar, Path outputDirectory, Path librariesDir) {
-		final MappingsStore mapping = new MappingsStore(mappings);
-		Map<String, ClassBuilder> classes = new HashMap<>();
-		forEachClass(inputJar, (classNode, environment) -> writeClass(mapping, classNode, classes, environment), librariesDir);
+		Generator.Builder generator = Generator.builder(mappingsStore)
+				.duplicatePolicy(duplicatePolicy)
+				.shard(shardIndex, shardCount)
+				.report(report)
+				.directEmit(directEmit);
 
-		for (ClassBuilder classBuilder : classes.values()) {
-			String name = classBuilder.getClassName();
-			if (name.contains("$")) continue;
+		if (librariesDir != null) {
+			generator.libraries(report.measure(GenerationReport.LIBRARIES, () -> librariesLoader.apply(librariesDir)));
+		}
 
-			try {
-				int packageEnd = classBuilder.getClassName().lastIndexOf("/");
-				String pkgName = packageEnd < 0 ? "" : classBuilder.getClassName().substring(0, packageEnd).replaceAll("/", ".");
-				JavaFile javaFile = JavaFile.builder(pkgName, classBuilder.build()).build();
+		extraInputs.add(0, inputJar);
 
-				javaFile.writeTo(outputDirectory);
-			} catch (Throwable t) {
-				throw new RuntimeException("Failed to process class "+name, t);
+		for (Path input : extraInputs) {
+			if (!Files.exists(input)) {
+				out.println("could not find input jar " + input);
+				return false;
 			}
+
+			generator.input(InputSource.of(input));
 		}
-	}
 
-	private static void forEachClass(Path jar, ClassNodeConsumer classNodeConsumer, Path librariesDir) {
-		List<ClassNode> classes = new ArrayList<>();
-		Map<String, Collection<String>> supers = new HashMap<>();
-		Set<String> sealedClasses = new HashSet<>(); // their subclsses/impls need non-sealed modifier
+		// the sources are kept in memory as well when they are documented right away
+		MemoryOutputSink javadocSources = javadocDir == null ? null : new MemoryOutputSink();
 
-		Map<String, Environment.NestedClassInfo> nestedClasses = new ConcurrentHashMap<>();
-		Map<String, ClassNamePointer> classNames = new ConcurrentHashMap<>();
+		try (OutputSink sink = outputArchive
+				? new ZipOutputSink(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16), compressionLevel)
+				: new PooledDirectoryOutputSink(output, writerThreads)) {
+			generator.build().generate(javadocSources == null ? sink : new OutputSink() {
+				@Override
+				public void prepare(Set<String> packageNames) throws IOException {
+					sink.prepare(packageNames);
+				}
 
-		if (librariesDir != null) {
-			scanNestedClasses(classNames, nestedClasses, librariesDir);
+				@Override
+				public void write(String packageName, String fileName, String content) throws IOException {
+					sink.write(packageName, fileName, content);
+					javadocSources.write(packageName, fileName, content);
+				}
+			});
+			// pending files are written by the time the sink is closed
+			sink.close();
+
+			if (sink instanceof PooledDirectoryOutputSink directorySink) {
+				report.countOutput(directorySink.getFilesWritten(), directorySink.getBytesWritten(), directorySink.getBytesPerSecond());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 
-		try (final JarFile jarFile = new JarFile(jar.toFile())) {
-			Enumeration<JarEntry> entryEnumerator = jarFile.entries();
+		if (mappingIndex != null) {
+			try {
+				mappingsStore.writeIndex(mappingIndex);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 
-			while (entryEnumerator.hasMoreElements()) {
-				JarEntry entry = entryEnumerator.nextElement();
+		boolean success = true;
 
-				if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
-					continue;
-				}
+		if (javadocSources != null) {
+			try {
+				mappingsStore.writeSearchIndex(javadocDir);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 
-				try (InputStream is = jarFile.getInputStream(entry)) {
-					ClassReader reader = new ClassReader(is);
-					ClassNode classNode = new ClassNode();
-					reader.accept(classNode, ClassReader.SKIP_CODE);
-					List<String> superNames = new ArrayList<>();
-					if (classNode.superName != null && !classNode.superName.equals("java/lang/Object")) {
-						superNames.add(classNode.superName);
-					}
-					if (classNode.interfaces != null) {
-						superNames.addAll(classNode.interfaces);
-					}
-					if (!superNames.isEmpty()) {
-						supers.put(classNode.name, superNames);
-					}
+			Path docs = javadocDir;
+			Path index = mappingIndex;
+			boolean compact = compactMappings;
+			List<Path> classpath = librariesDir == null ? List.of() : findJars(librariesDir);
+			success = report.measure(GenerationReport.JAVADOC, () -> JavadocStage.run(javadocSources, docs, classpath, index, compact, List.of(), new PrintWriter(out, true)));
+		}
 
-					if (classNode.innerClasses != null) {
-						for (InnerClassNode e : classNode.innerClasses) {
-							if (e.outerName != null) {
-								// null -> declared in method/initializer
-								nestedClasses.put(e.name, new NestedClassInfo(e.outerName, !Modifier.isStatic(e.access), e.innerName));
-							}
-						}
-					}
+		if (reportFile != null) {
+			try {
+				report.write(reportFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 
-					if (classNode.permittedSubclasses != null) {
-						sealedClasses.add(classNode.name);
-					}
+		return success;
+	}
 
-					classes.add(classNode);
-				}
-			}
+	private static List<Path> findJars(Path dir) {
+		try (var stream = Files.walk(dir)) {
+			return stream.filter(file -> file.getFileName().toString().endsWith(".jar"))
+					.sorted()
+					.toList();
 		} catch (IOException e) {
-			throw new RuntimeException(e);
+			throw new UncheckedIOException(e);
 		}
+	}
 
-		//Sort all the classes making sure that inner classes come after the parent classes
-		classes.sort(Comparator.comparing(o -> o.name));
-
-		for (ClassNode node : classes) {
-			classNodeConsumer.accept(node, new Environment(supers, sealedClasses, nestedClasses));
+	public static void generate(Path mappings, Path inputJar, Path outputDirectory, Path librariesDir) {
+		try (OutputSink sink = new PooledDirectoryOutputSink(outputDirectory, defaultWriterThreads())) {
+			generate(mappings, inputJar, sink, librariesDir);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
-	private static void scanNestedClasses(Map<String, ClassNamePointer> classNames, Map<String, Environment.NestedClassInfo> instanceInnerClasses, Path librariesDir) {
-		try {
-			Files.walkFileTree(librariesDir, new SimpleFileVisitor<>() {
-				@Override
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					if (!file.getFileName().toString().endsWith(".jar")) {
-						return FileVisitResult.CONTINUE;
-					}
+	// writes mostly wait on the file system, a few threads are enough to keep it busy
+	private static int defaultWriterThreads() {
+		return Math.min(4, Runtime.getRuntime().availableProcessors());
+	}
 
-					try (final JarFile jarFile = new JarFile(file.toFile())) {
-						Enumeration<JarEntry> entryEnumerator = jarFile.entries();
-
-						while (entryEnumerator.hasMoreElements()) {
-							JarEntry entry = entryEnumerator.nextElement();
-
-							if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
-								continue;
-							}
-
-							try (InputStream is = jarFile.getInputStream(entry)) {
-								ClassReader reader = new ClassReader(is);
-								reader.accept(new ClassVisitor(Opcodes.ASM9) {
-									@Override
-									public void visitInnerClass(String name, String outerName, String simpleName, int access) {
-										instanceInnerClasses.put(name, new Environment.NestedClassInfo(outerName, !Modifier.isStatic(access), simpleName));
-										if (outerName != null) {
-											classNames.put(name, new ClassNamePointer(simpleName, outerName));
-										}
-									}
-								}, ClassReader.SKIP_CODE);
-							}
-						}
-					}
+	/**
+	 * Generates sources for all classes in the input jar. The sink receives the
+	 * files in the order of their class names, and is not closed by this method.
+	 */
+	public static void generate(Path mappings, Path inputJar, OutputSink sink, Path librariesDir) {
+		generate(new MappingsStore(mappings), InputSource.of(inputJar), sink, librariesDir);
+	}
 
-					return FileVisitResult.CONTINUE;
-				}
-			});
-		} catch (IOException ex) {
-			throw new UncheckedIOException(ex);
-		}
+	/**
+	 * Like {@link #generate(Path, Path, OutputSink, Path)}, with mappings that are already loaded
+	 * and any kind of input.
+	 */
+	public static void generate(MappingsStore mappings, InputSource input, OutputSink sink, Path librariesDir) {
+		Generator.builder(mappings)
+				.input(input)
+				.libraries(librariesDir)
+				.build()
+				.generate(sink);
 	}
 
 	private static boolean isInstanceInnerOnClasspath(String internalName) {
@@ -226,44 +310,4 @@ public class Main {
 			return false;
 		}
 	}
-
-	private static boolean isDigit(char ch) {
-		return ch >= '0' && ch <= '9';
-	}
-
-	private static void writeClass(MappingsStore mappings, ClassNode classNode, Map<String, ClassBuilder> existingClasses, Environment environment) {
-		// TODO make sure named jar has valid InnerClasses, use that info instead
-		String name = classNode.name;
-		{
-			//Block anonymous class and their nested classes
-			int lastSearch = name.length();
-			while (lastSearch != -1) {
-				lastSearch = name.lastIndexOf('$', lastSearch - 1);
-				// names starting with digit is illegal java
-				if (isDigit(name.charAt(lastSearch + 1))) {
-					return;
-				}
-			}
-		}
-
-		// TODO: ensure InnerClasses is remapped, and create ClassName from parent class name
-		ClassBuilder classBuilder = new ClassBuilder(mappings, classNode, environment);
-
-		if (name.contains("$")) {
-			String parentClass = name.substring(0, name.lastIndexOf("$"));
-			if (!existingClasses.containsKey(parentClass)) {
-				throw new RuntimeException("Could not find parent class: " + parentClass + " for " + classNode.name);
-			}
-			existingClasses.get(parentClass).addInnerClass(classBuilder);
-		}
-
-		classBuilder.addMembers();
-		existingClasses.put(name, classBuilder);
-
-	}
-
-	@FunctionalInterface
-	private interface ClassNodeConsumer {
-		void accept(ClassNode node, Environment environment);
-	}
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MappingTreeView.ClassMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.ElementMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.FieldMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.MemberMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.MethodMappingView;
+import net.fabricmc.mappingpoet.jd.MappingIndexFile;
+
+/**
+ * Numbers the classes, fields and methods of a mapping tree, and writes their names
+ * in all namespaces into a {@link MappingIndexFile}.
+ *
+ * <p>Numbers follow the order of the tree, so they do not depend on the order
+ * classes are generated in.
+ */
+final class MappingIndex {
+	private final MappingTreeView tree;
+	private final List<ElementMappingView> elements = new ArrayList<>();
+	private final Map<ElementMappingView, Integer> ids = new IdentityHashMap<>();
+
+	private MappingIndex(MappingTreeView tree) {
+		this.tree = tree;
+	}
+
+	static MappingIndex build(MappingTreeView tree) {
+		MappingIndex index = new MappingIndex(tree);
+
+		for (ClassMappingView classDef : tree.getClasses()) {
+			index.add(classDef);
+			classDef.getFields().forEach(index::add);
+			classDef.getMethods().forEach(index::add);
+		}
+
+		return index;
+	}
+
+	private void add(ElementMappingView element) {
+		ids.put(element, elements.size());
+		elements.add(element);
+	}
+
+	int id(ElementMappingView element) {
+		Integer id = ids.get(element);
+
+		if (id == null) {
+			throw new IllegalArgumentException("Element is not in the mapping tree of this index");
+		}
+
+		return id;
+	}
+
+	/**
+	 * Writes the index next to the file and moves it into place, so readers that have
+	 * the previous index mapped never see it change under them.
+	 */
+	void write(Path file) throws IOException {
+		int maxNamespace = tree.getMaxNamespaceId();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(data);
+		int[] offsets = new int[elements.size()];
+
+		for (int i = 0; i < elements.size(); i++) {
+			offsets[i] = data.size();
+			ElementMappingView element = elements.get(i);
+
+			if (element instanceof ClassMappingView classDef) {
+				dataOut.writeByte(MappingIndexFile.CLASS);
+
+				for (int id = MappingTreeView.SRC_NAMESPACE_ID; id < maxNamespace; id++) {
+					writeString(dataOut, classDef.getName(id), element);
+				}
+			} else {
+				dataOut.writeByte(MappingIndexFile.MEMBER);
+
+				for (int id = MappingTreeView.SRC_NAMESPACE_ID; id < maxNamespace; id++) {
+					writeString(dataOut, element.getName(id), element);
+					writeString(dataOut, element instanceof FieldMappingView fieldDef
+							? MappingsStore.fieldSelector(fieldDef, id)
+							: MappingsStore.methodSelector((MethodMappingView) element, id), element);
+				}
+			}
+		}
+
+		Path absoluteFile = file.toAbsolutePath();
+		Path temp = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+
+		try (OutputStream os = Files.newOutputStream(temp);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+			out.writeInt(MappingIndexFile.MAGIC);
+			out.writeInt(MappingIndexFile.VERSION);
+			out.writeInt(maxNamespace - MappingTreeView.SRC_NAMESPACE_ID);
+
+			for (int id = MappingTreeView.SRC_NAMESPACE_ID; id < maxNamespace; id++) {
+				writeString(out, tree.getNamespaceName(id), null);
+			}
+
+			out.writeInt(elements.size());
+			// offsets are absolute, the header and offset table come before the data
+			int dataStart = out.size() + 4 * offsets.length;
+
+			for (int offset : offsets) {
+				out.writeInt(dataStart + offset);
+			}
+
+			data.writeTo(out);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param element the element the string belongs to, or {@code null} for a namespace name
+	 */
+	private static void writeString(DataOutputStream out, String value, ElementMappingView element) throws IOException {
+		byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+
+		// the length is an unsigned short, names from class files always fit but selectors might not
+		if (bytes.length > 0xFFFF) {
+			String owner = element == null ? "a namespace"
+					: element instanceof MemberMappingView member ? member.getOwner().getSrcName() + "." + member.getSrcName() + member.getSrcDesc()
+					: element.getSrcName();
+			throw new IOException("A string of " + bytes.length + " bytes in the mapping index is too long, for " + owner);
+		}
+
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.Type;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MappingTreeView.ClassMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.ElementMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.FieldMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.MemberMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.MethodMappingView;
+
+/**
+ * Collects the classes, fields and methods that end up documented, and writes the
+ * names of all their namespaces with the page each is documented on, for
+ * {@code mapping_search.js} to search by prefix.
+ *
+ * <p>Names are searched by their last segment, such as {@code class_1234} of
+ * {@code net/minecraft/class_1234} or the name of a member, ignoring case. Entries are
+ * sorted by that key and split into shards of {@value #SHARD_SIZE}, so that a search
+ * only loads the few shards whose key range covers the prefix. Shards and their
+ * manifest are scripts rather than JSON, as browsers do not fetch files from
+ * docs opened from disk.
+ */
+final class MappingSearchIndex {
+	static final String DIRECTORY = "mapping-search";
+	static final int SHARD_SIZE = 2048;
+
+	private final MappingTreeView tree;
+	// builders add from many threads
+	private final Set<ElementMappingView> elements = ConcurrentHashMap.newKeySet();
+
+	MappingSearchIndex(MappingTreeView tree) {
+		this.tree = tree;
+	}
+
+	void add(ElementMappingView element) {
+		elements.add(element);
+	}
+
+	void write(Path docsDir) throws IOException {
+		int maxNamespace = tree.getMaxNamespaceId();
+		List<Entry> entries = new ArrayList<>();
+
+		for (ElementMappingView element : elements) {
+			String url = url(element);
+
+			for (int id = MappingTreeView.SRC_NAMESPACE_ID; id < maxNamespace; id++) {
+				String name = element.getName(id);
+
+				if (name != null) {
+					entries.add(new Entry(key(element, name), id - MappingTreeView.SRC_NAMESPACE_ID, name, url));
+				}
+			}
+		}
+
+		entries.sort(Comparator.comparing(Entry::key).thenComparingInt(Entry::namespace).thenComparing(Entry::name).thenComparing(Entry::url));
+
+		Path dir = docsDir.resolve(DIRECTORY);
+		Files.createDirectories(dir);
+
+		// a previous run may have written more shards
+		try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, "*.js")) {
+			for (Path file : stale) {
+				Files.delete(file);
+			}
+		}
+
+		List<String[]> ranges = new ArrayList<>();
+
+		for (int start = 0, shard = 0; start < entries.size(); start += SHARD_SIZE, shard++) {
+			List<Entry> shardEntries = entries.subList(start, Math.min(start + SHARD_SIZE, entries.size()));
+			ranges.add(new String[] {shardEntries.get(0).key(), shardEntries.get(shardEntries.size() - 1).key()});
+
+			try (Writer writer = Files.newBufferedWriter(dir.resolve(shard + ".js"), StandardCharsets.UTF_8)) {
+				writer.write("mappingSearch.shard(" + shard + ", [");
+
+				for (int i = 0; i < shardEntries.size(); i++) {
+					Entry entry = shardEntries.get(i);
+					writer.write(i == 0 ? "\n[" : ",\n[");
+					writer.write(Integer.toString(entry.namespace()));
+					writer.write(',');
+					writeString(writer, entry.name());
+					writer.write(',');
+					writeString(writer, entry.url());
+					writer.write(']');
+				}
+
+				writer.write("\n]);\n");
+			}
+		}
+
+		try (Writer writer = Files.newBufferedWriter(dir.resolve("index.js"), StandardCharsets.UTF_8)) {
+			writer.write("mappingSearch.manifest([");
+
+			for (int id = MappingTreeView.SRC_NAMESPACE_ID; id < maxNamespace; id++) {
+				if (id != MappingTreeView.SRC_NAMESPACE_ID) {
+					writer.write(',');
+				}
+
+				writeString(writer, tree.getNamespaceName(id));
+			}
+
+			writer.write("], [");
+
+			for (int i = 0; i < ranges.size(); i++) {
+				writer.write(i == 0 ? "\n[" : ",\n[");
+				writeString(writer, ranges.get(i)[0]);
+				writer.write(',');
+				writeString(writer, ranges.get(i)[1]);
+				writer.write(']');
+			}
+
+			writer.write("\n]);\n");
+		}
+	}
+
+	/**
+	 * The last segment of a class name, or the member name, in lower case. Keep in sync with {@code mapping_search.js}.
+	 */
+	static String key(ElementMappingView element, String name) {
+		if (element instanceof ClassMappingView) {
+			name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('$')) + 1);
+		}
+
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The page of an element relative to the doc root, from its name in the source namespace
+	 * which is the one the sources are generated in.
+	 *
+	 * <p>Method anchors are derived from the descriptor, so varargs methods link to
+	 * their class page rather than the method itself.
+	 */
+	static String url(ElementMappingView element) {
+		if (element instanceof ClassMappingView) {
+			return page(element.getSrcName());
+		}
+
+		MemberMappingView member = (MemberMappingView) element;
+		String page = page(member.getOwner().getSrcName());
+
+		if (member instanceof FieldMappingView) {
+			return page + "#" + member.getSrcName();
+		}
+
+		StringBuilder url = new StringBuilder(page).append('#');
+		url.append(member.getSrcName().equals("<init>") ? "%3Cinit%3E" : member.getSrcName()).append('(');
+		Type[] parameters = Type.getArgumentTypes(((MethodMappingView) member).getSrcDesc());
+
+		for (int i = 0; i < parameters.length; i++) {
+			if (i != 0) {
+				url.append(',');
+			}
+
+			url.append(parameters[i].getClassName().replace('$', '.'));
+		}
+
+		return url.append(')').toString();
+	}
+
+	private static String page(String className) {
+		return className.replace('$', '.') + ".html";
+	}
+
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			} else if (c < 0x20) {
+				writer.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			} else {
+				writer.write(c);
+			}
+		}
+
+		writer.write('"');
+	}
+
+	private record Entry(String key, int namespace, String name, String url) {
+	}
+}
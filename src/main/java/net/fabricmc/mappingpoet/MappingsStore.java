@@ -21,6 +21,7 @@ import net.fabricmc.mappingio.format.MappingFormat;
 import net.fabricmc.mappingio.tree.MappingTreeView;
 import net.fabricmc.mappingio.tree.MappingTreeView.ClassMappingView;
 import net.fabricmc.mappingio.tree.MappingTreeView.ElementMappingView;
+import net.fabricmc.mappingio.tree.MappingTreeView.FieldMappingView;
 import net.fabricmc.mappingio.tree.MappingTreeView.MethodMappingView;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
@@ -36,10 +37,79 @@ import static net.fabricmc.mappingio.tree.MappingTreeView.SRC_NAMESPACE_ID;
 public class MappingsStore {
 	private final MappingTreeView tree;
 	private final int maxNamespace;
+	// null to list the names of all namespaces in the sources
+	private final MappingIndex index;
+	// null unless documented elements are collected for searching
+	private final MappingSearchIndex searchIndex;
 
 	public MappingsStore(Path tinyFile) {
-		this.tree = readMappings(tinyFile);
+		this(readMappings(tinyFile), null, null);
+	}
+
+	private MappingsStore(MappingTreeView tree, MappingIndex index, MappingSearchIndex searchIndex) {
+		this.tree = tree;
 		this.maxNamespace = tree.getMaxNamespaceId();
+		this.index = index;
+		this.searchIndex = searchIndex;
+	}
+
+	/**
+	 * Returns a store of the same mappings, which only refers to an entry of the
+	 * {@linkplain #writeIndex(Path) mapping index} instead of listing the names of
+	 * every namespace in the sources.
+	 */
+	public MappingsStore withIndex() {
+		return new MappingsStore(tree, MappingIndex.build(tree), searchIndex);
+	}
+
+	/**
+	 * Returns a store of the same mappings, which collects the elements it documents
+	 * for the {@linkplain #writeSearchIndex(Path) search index}.
+	 */
+	public MappingsStore withSearchIndex() {
+		return new MappingsStore(tree, index, new MappingSearchIndex(tree));
+	}
+
+	/**
+	 * Writes the search index of the elements documented so far into the docs directory,
+	 * to be read by {@code mapping_search.js}.
+	 */
+	public void writeSearchIndex(Path docsDir) throws IOException {
+		if (searchIndex == null) {
+			throw new IllegalStateException("Documented elements are not collected");
+		}
+
+		searchIndex.write(docsDir);
+	}
+
+	/**
+	 * Writes the index that the sources generated with this store refer to, to be read by
+	 * {@link net.fabricmc.mappingpoet.jd.MappingTaglet}.
+	 */
+	public void writeIndex(Path file) throws IOException {
+		if (index == null) {
+			throw new IllegalStateException("Mappings are listed inline, there is no index");
+		}
+
+		index.write(file);
+	}
+
+	static String fieldSelector(FieldMappingView fieldDef, int namespace) {
+		return "L" + fieldDef.getOwner().getName(namespace) + ";" + fieldDef.getName(namespace) + ":" + fieldDef.getDesc(namespace);
+	}
+
+	static String methodSelector(MethodMappingView methodDef, int namespace) {
+		return "L" + methodDef.getOwner().getName(namespace) + ";" + methodDef.getName(namespace) + methodDef.getDesc(namespace);
+	}
+
+	private void addIndexReference(ElementMappingView element, DocAdder adder) {
+		adder.addJavadoc("@mapping {@literal #$L}\n", index.id(element));
+	}
+
+	private void addToSearchIndex(ElementMappingView element) {
+		if (searchIndex != null) {
+			searchIndex.add(element);
+		}
 	}
 
 	private static MappingTreeView readMappings(Path input) {
@@ -65,7 +135,12 @@ public class MappingsStore {
 			return;
 		}
 		addDoc(classDef, adder);
+		addToSearchIndex(classDef);
 		adder.addJavadoc("\n");
+		if (index != null) {
+			addIndexReference(classDef, adder);
+			return;
+		}
 		for (int id = SRC_NAMESPACE_ID; id < maxNamespace; id++) {
 			String transformedName = classDef.getName(id);
 			adder.addJavadoc("@mapping {@literal $L:$L}\n", tree.getNamespaceName(id), transformedName);
@@ -84,10 +159,15 @@ public class MappingsStore {
 		}
 
 		addDoc(fieldDef, addJavadoc);
+		addToSearchIndex(fieldDef);
 		addJavadoc.addJavadoc("\n");
+		if (index != null) {
+			addIndexReference(fieldDef, addJavadoc);
+			return;
+		}
 		for (int id = SRC_NAMESPACE_ID; id < maxNamespace; id++) {
 			String transformedName = fieldDef.getName(id);
-			String mixinForm = "L" + classDef.getName(id) + ";" + transformedName + ":" + fieldDef.getDesc(id);
+			String mixinForm = fieldSelector(fieldDef, id);
 			addJavadoc.addJavadoc("@mapping {@literal $L:$L:$L}\n", tree.getNamespaceName(id), transformedName, mixinForm);
 		}
 	}
@@ -123,10 +203,19 @@ public class MappingsStore {
 			addDoc(methodDef, adder);
 		}
 
+		if (ownerDef.getSrcName().equals(owner)) {
+			// not for overrides of a mapped method that are not mapped themselves
+			addToSearchIndex(methodDef);
+		}
+
 		adder.addJavadoc("\n");
+		if (index != null) {
+			addIndexReference(methodDef, adder);
+			return;
+		}
 		for (int id = SRC_NAMESPACE_ID; id < maxNamespace; id++) {
 			String transformedName = methodDef.getName(id);
-			String mixinForm = "L" + ownerDef.getName(id) + ";" + transformedName + methodDef.getDesc(id);
+			String mixinForm = methodSelector(methodDef, id);
 			adder.addJavadoc("@mapping {@literal $L:$L:$L}\n", tree.getNamespaceName(id), transformedName, mixinForm);
 		}
 	}
@@ -18,6 +18,7 @@ package net.fabricmc.mappingpoet;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.TypeName;
+import net.fabricmc.mappingpoet.jfr.MethodBuildEvent;
 import net.fabricmc.mappingpoet.signature.AnnotationAwareDescriptors;
 import net.fabricmc.mappingpoet.signature.AnnotationAwareSignatures;
 import net.fabricmc.mappingpoet.signature.MethodSignature;
@@ -31,22 +32,12 @@ import org.objectweb.asm.tree.MethodNode;
 
 import javax.lang.model.element.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public class MethodBuilder {
-	private static final Set<String> RESERVED_KEYWORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
-			"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
-			"default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
-			"implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
-			"protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
-			"throw", "throws", "transient", "try", "void", "volatile", "while"
-	)));
 	private final MappingsStore mappings;
 	private final ClassNode classNode;
 	private final MethodNode methodNode;
@@ -59,6 +50,8 @@ public class MethodBuilder {
 	private MethodSignature signature;
 
 	public MethodBuilder(MappingsStore mappings, ClassNode classNode, MethodNode methodNode, Environment environment, String receiverSignature, int formalParamStartIndex) {
+		MethodBuildEvent event = new MethodBuildEvent();
+		event.begin();
 		this.mappings = mappings;
 		this.classNode = classNode;
 		this.methodNode = methodNode;
@@ -77,6 +70,14 @@ public class MethodBuilder {
 		setReturnType();
 		addParameters();
 		addExceptions();
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.className = classNode.name;
+			event.methodName = methodNode.name;
+			event.methodDescriptor = methodNode.desc;
+			event.commit();
+		}
 	}
 
 	private static void addDirectAnnotations(ParameterSpec.Builder builder, List<AnnotationNode>[] regularAnnotations, int index) {
@@ -99,51 +100,9 @@ public class MethodBuilder {
 		return new IllegalArgumentException(String.format("Invalid method descriptor at %d: \"%s\"", index, desc));
 	}
 
-	static String reserveValidName(String suggestedName, Set<String> usedNames) {
-		if (!usedNames.contains(suggestedName)) {
-			usedNames.add(suggestedName);
-			return suggestedName;
-		}
-		int t = 2;
-		String currentSuggestion = suggestedName + t;
-		while (usedNames.contains(currentSuggestion)) {
-			t++;
-			currentSuggestion = suggestedName + t;
-		}
-
-		usedNames.add(currentSuggestion);
-
-		return currentSuggestion;
-	}
-
-	static String suggestName(TypeName type) {
-		String str = type.withoutAnnotations().toString();
-		int newStart = 0;
-		int newEnd = str.length();
-		int ltStart;
-		ltStart = str.indexOf('<', newStart);
-		if (ltStart != -1 && ltStart < newEnd) {
-			newEnd = ltStart;
-		}
-		ltStart = str.indexOf('[', newStart);
-		if (ltStart != -1 && ltStart < newEnd) {
-			newEnd = ltStart;
-		}
-		int dotEnd;
-		if ((dotEnd = str.lastIndexOf(".", newEnd)) != -1) {
-			newStart = dotEnd + 1;
-		}
-		str = Character.toLowerCase(str.charAt(newStart)) + str.substring(newStart + 1, newEnd);
-
-		if (str.equals("boolean")) {
-			str = "bool";
-		}
-		return str;
-	}
-
 	private MethodSpec.Builder createBuilder() {
 		MethodSpec.Builder builder = MethodSpec.methodBuilder(methodNode.name)
-				.addModifiers(new ModifierBuilder(methodNode.access).getModifiers(ModifierBuilder.Type.METHOD));
+				.addModifiers(ModifierBuilder.getModifiers(methodNode.access, ModifierBuilder.Type.METHOD));
 		if (methodNode.name.equals("<init>") || !java.lang.reflect.Modifier.isInterface(classNode.access) || java.lang.reflect.Modifier.isPrivate(methodNode.access)) {
 			builder.modifiers.remove(Modifier.DEFAULT);
 		}
@@ -196,7 +155,7 @@ public class MethodBuilder {
 		// todo fix enum ctors
 		List<ParamType> paramTypes = new ArrayList<>();
 		boolean instanceMethod = !builder.modifiers.contains(Modifier.STATIC);
-		Set<String> usedParamNames = new HashSet<>(RESERVED_KEYWORDS);
+		ParameterNames usedParamNames = new ParameterNames();
 		getParams(paramTypes, instanceMethod, usedParamNames);
 
 		// generate receiver param for type annos
@@ -237,7 +196,7 @@ public class MethodBuilder {
 		}
 	}
 
-	private void getParams(List<ParamType> paramTypes, boolean instance, Set<String> usedParamNames) {
+	private void getParams(List<ParamType> paramTypes, boolean instance, ParameterNames usedParamNames) {
 		int slot = instance ? 1 : 0;
 		final String desc = methodNode.desc;
 		int paramIndex = 0;
@@ -309,27 +268,26 @@ public class MethodBuilder {
 		private final Modifier[] modifiers;
 		private String name;
 
-		public ParamType(Map.Entry<String, String> nameAndDoc, TypeName type, Set<String> usedNames, int slot) {
+		public ParamType(Map.Entry<String, String> nameAndDoc, TypeName type, ParameterNames usedNames, int slot) {
 			this.name = nameAndDoc != null ? nameAndDoc.getKey() : null;
 			if (this.name != null) {
-				if (usedNames.contains(this.name)) {
+				if (usedNames.isUsed(this.name)) {
 					System.err.printf("Overridden parameter name detected in %s %s %s slot %d, resetting%n", classNode.name, methodNode.name, methodNode.desc, slot);
 					this.name = null;
 				} else {
-					usedNames.add(this.name);
+					usedNames.use(this.name);
 				}
 			}
 			this.comment = nameAndDoc == null ? null : nameAndDoc.getValue();
 			this.type = type;
-			this.modifiers = new ModifierBuilder(0)
-					.getModifiers(ModifierBuilder.Type.PARAM);
+			this.modifiers = ModifierBuilder.getModifiers(0, ModifierBuilder.Type.PARAM);
 		}
 
-		private void fillName(Set<String> usedNames) {
+		private void fillName(ParameterNames usedNames) {
 			if (name != null) {
 				return;
 			}
-			name = reserveValidName(suggestName(type), usedNames);
+			name = usedNames.reserve(ParameterNames.suggest(type));
 		}
 	}
 }
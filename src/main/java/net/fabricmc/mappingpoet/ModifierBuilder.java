@@ -20,8 +20,24 @@ import org.objectweb.asm.tree.ClassNode;
 import javax.lang.model.element.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Looks up the source modifiers of access flags.
+ *
+ * <p>Only a few access flags turn into modifiers, so the modifiers of every
+ * combination of those flags, declaration type and unsealing are computed once
+ * and shared. The returned arrays must not be modified.
+ *
+ * <p>Instances are kept for existing callers, and look up their modifiers the same way.
+ */
 public class ModifierBuilder {
+	// public, private, protected, static, final, synchronized, volatile, transient, native, abstract, strictfp
+	private static final int ACCESS_MASK = 0xDFF;
+	private static final int ACCESS_COMBINATIONS = ACCESS_MASK + 1;
+	private static final Type[] TYPES = Type.values();
+	// [needsUnseal][type][access & ACCESS_MASK], filled as they are used
+	private static final AtomicReferenceArray<Modifier[]> MODIFIERS = new AtomicReferenceArray<>(2 * TYPES.length * ACCESS_COMBINATIONS);
 
 	private final int access;
 	private boolean needsUnseal;
@@ -31,30 +47,56 @@ public class ModifierBuilder {
 	}
 
 	public ModifierBuilder checkUnseal(ClassNode node, Environment env) {
+		needsUnseal |= needsUnseal(node, env);
+		return this;
+	}
+
+	/**
+	 * Returns a new array, which unlike the shared ones may be modified.
+	 */
+	public Modifier[] getModifiers(Type type) {
+		return getModifiers(access, type, needsUnseal).clone();
+	}
+
+	/**
+	 * Whether a class needs {@code non-sealed}, as it directly extends or implements a sealed class.
+	 */
+	public static boolean needsUnseal(ClassNode node, Environment env) {
 		if (java.lang.reflect.Modifier.isFinal(node.access)) {
-			return this;
+			return false;
 		}
 
 		if (node.interfaces != null) {
 			for (String itf : node.interfaces) {
 				if (env.sealedClasses().contains(itf)) {
-					needsUnseal = true;
-					return this;
+					return true;
 				}
 			}
 		}
 
-		if (node.superName != null && env.sealedClasses().contains(node.superName)) {
-			needsUnseal = true;
-		}
+		return node.superName != null && env.sealedClasses().contains(node.superName);
+	}
 
+	public static Modifier[] getModifiers(int access, Type type) {
+		return getModifiers(access, type, false);
+	}
 
-		return this;
+	public static Modifier[] getModifiers(int access, Type type, boolean needsUnseal) {
+		int maskedAccess = access & ACCESS_MASK;
+		int index = ((needsUnseal ? TYPES.length : 0) + type.ordinal()) * ACCESS_COMBINATIONS + maskedAccess;
+		Modifier[] ret = MODIFIERS.get(index);
+
+		if (ret == null) {
+			// racing threads compute equal arrays, either one is fine
+			ret = computeModifiers(maskedAccess, type, needsUnseal);
+			MODIFIERS.lazySet(index, ret);
+		}
+
+		return ret;
 	}
 
-	public Modifier[] getModifiers(Type type) {
+	private static Modifier[] computeModifiers(int access, Type type, boolean needsUnseal) {
 		List<Modifier> modifiers = new ArrayList<>();
-
 		if (type == Type.PARAM) {
 			if (java.lang.reflect.Modifier.isFinal(access)) {
 				modifiers.add(Modifier.FINAL);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * The parameter names of one method, with names suggested from the types of
+ * parameters that have no mapped name.
+ *
+ * <p>Methods have few parameters, so used names are kept in a small array rather
+ * than a set, and keywords are checked separately.
+ */
+final class ParameterNames {
+	private static final Set<String> RESERVED_KEYWORDS = Set.of(
+			"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+			"default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
+			"implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+			"protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+			"throw", "throws", "transient", "try", "void", "volatile", "while"
+	);
+
+	private String[] names = new String[8];
+	private int size;
+
+	boolean isUsed(String name) {
+		if (RESERVED_KEYWORDS.contains(name)) {
+			return true;
+		}
+
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	void use(String name) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+		}
+
+		names[size++] = name;
+	}
+
+	/**
+	 * Uses the suggested name, or the first free one of it with 2, 3 and so on appended.
+	 */
+	String reserve(String suggestedName) {
+		String ret = suggestedName;
+
+		for (int t = 2; isUsed(ret); t++) {
+			ret = suggestedName + t;
+		}
+
+		use(ret);
+		return ret;
+	}
+
+	/**
+	 * Suggests the simple name of the type, starting in lower case, for example
+	 * {@code list} for {@code List<String>[]}. Keywords are left to {@link #reserve(String)},
+	 * except {@code boolean}, which becomes {@code bool}.
+	 *
+	 * <p>Only names are looked at, rendering a type through JavaPoet is far more expensive.
+	 * Parameterized nested types are still rendered, as their outer type may be
+	 * parameterized as well and then gives the name.
+	 */
+	static String suggest(TypeName type) {
+		while (type instanceof ArrayTypeName array) {
+			type = array.componentType;
+		}
+
+		String simpleName;
+
+		if (type instanceof ParameterizedTypeName parameterized && parameterized.rawType.enclosingClassName() != null) {
+			// outer for Outer<T>.Inner<U>, the enclosing type is not exposed by JavaPoet
+			String rendered = parameterized.withoutAnnotations().toString();
+			rendered = rendered.substring(0, rendered.indexOf('<'));
+			simpleName = rendered.substring(rendered.lastIndexOf('.') + 1);
+		} else if (type instanceof ParameterizedTypeName parameterized) {
+			simpleName = parameterized.rawType.simpleName();
+		} else if (type instanceof ClassName className) {
+			simpleName = className.simpleName();
+		} else if (type instanceof TypeVariableName typeVariable) {
+			simpleName = typeVariable.name;
+		} else if (type.isPrimitive()) {
+			// primitive type names are keywords, the box tells which one without rendering it
+			String boxName = ((ClassName) type.box()).simpleName();
+			simpleName = switch (boxName) {
+			case "Character" -> "char";
+			case "Integer" -> "int";
+			default -> boxName.toLowerCase(Locale.ROOT);
+			};
+		} else {
+			simpleName = type.withoutAnnotations().toString();
+		}
+
+		String ret = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+		// for both the primitive and its box
+		return ret.equals("boolean") ? "bool" : ret;
+	}
+}
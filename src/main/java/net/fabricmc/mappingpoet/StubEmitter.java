@@ -0,0 +1,511 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+
+/**
+ * Renders a {@link JavaFile} in one pass instead of two.
+ *
+ * <p>{@link JavaFile#writeTo(Appendable)} emits the whole file once into nothing
+ * just to learn which types it can import, then emits it again for real. The
+ * imports only depend on the types the file refers to and where, so this walks
+ * the built specs instead, resolving names the way JavaPoet's {@code CodeWriter}
+ * does, and has JavaPoet emit the file once with those imports.
+ *
+ * <p>That needs access to JavaPoet internals. When they are not there, or the
+ * file uses something the walk does not cover such as static imports, files are
+ * rendered by {@link JavaFile#writeTo(Appendable)}.
+ */
+final class StubEmitter {
+	// JavaFile.emit(CodeWriter) and the CodeWriter constructor of its second pass
+	private static final MethodHandle EMIT;
+	private static final MethodHandle NEW_CODE_WRITER;
+	private static final MethodHandle INDENT;
+	private static final MethodHandle STATIC_IMPORTS;
+	private static final MethodHandle ALWAYS_QUALIFY;
+	private static final MethodHandle FORMAT_PARTS;
+	private static final MethodHandle ARGS;
+	private static final MethodHandle ENCLOSING_TYPE;
+
+	static {
+		MethodHandle emit = null;
+		MethodHandle newCodeWriter = null;
+		MethodHandle indent = null;
+		MethodHandle staticImports = null;
+		MethodHandle alwaysQualify = null;
+		MethodHandle formatParts = null;
+		MethodHandle args = null;
+		MethodHandle enclosingType = null;
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Class<?> codeWriter = Class.forName("com.squareup.javapoet.CodeWriter", false, JavaFile.class.getClassLoader());
+			Method emitMethod = JavaFile.class.getDeclaredMethod("emit", codeWriter);
+			emitMethod.setAccessible(true);
+			emit = lookup.unreflect(emitMethod);
+			Constructor<?> constructor = codeWriter.getDeclaredConstructor(Appendable.class, String.class, Map.class, Set.class, Set.class);
+			constructor.setAccessible(true);
+			newCodeWriter = lookup.unreflectConstructor(constructor);
+			indent = getter(lookup, JavaFile.class, "indent");
+			staticImports = getter(lookup, JavaFile.class, "staticImports");
+			alwaysQualify = getter(lookup, JavaFile.class, "alwaysQualify");
+			formatParts = getter(lookup, CodeBlock.class, "formatParts");
+			args = getter(lookup, CodeBlock.class, "args");
+			enclosingType = getter(lookup, ParameterizedTypeName.class, "enclosingType");
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			emit = null; // another JavaPoet, render the usual way
+		}
+
+		EMIT = emit;
+		NEW_CODE_WRITER = newCodeWriter;
+		INDENT = indent;
+		STATIC_IMPORTS = staticImports;
+		ALWAYS_QUALIFY = alwaysQualify;
+		FORMAT_PARTS = formatParts;
+		ARGS = args;
+		ENCLOSING_TYPE = enclosingType;
+	}
+
+	private StubEmitter() {
+	}
+
+	private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> owner, String name) throws ReflectiveOperationException {
+		Field field = owner.getDeclaredField(name);
+		field.setAccessible(true);
+		return lookup.unreflectGetter(field);
+	}
+
+	/**
+	 * Whether files are rendered in one pass, rather than falling back to JavaPoet.
+	 */
+	static boolean isAvailable() {
+		return EMIT != null;
+	}
+
+	static void writeTo(JavaFile javaFile, Appendable out) throws IOException {
+		if (EMIT == null) {
+			javaFile.writeTo(out);
+			return;
+		}
+
+		try {
+			Set<?> staticImports = (Set<?>) STATIC_IMPORTS.invoke(javaFile);
+
+			if (!staticImports.isEmpty() || !javaFile.fileComment.isEmpty()) {
+				javaFile.writeTo(out);
+				return;
+			}
+
+			Set<?> alwaysQualify = (Set<?>) ALWAYS_QUALIFY.invoke(javaFile);
+			ImportCollector imports = new ImportCollector(javaFile.packageName, alwaysQualify);
+			imports.type(javaFile.typeSpec, null);
+			Object codeWriter = NEW_CODE_WRITER.invoke(out, (String) INDENT.invoke(javaFile), imports.suggestedImports(), staticImports, alwaysQualify);
+			EMIT.invoke(javaFile, codeWriter);
+		} catch (IOException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException("Failed to render " + javaFile.typeSpec.name, t);
+		}
+	}
+
+	/**
+	 * Visits types in the order {@code CodeWriter} looks them up while emitting, which
+	 * decides the import of two classes with the same simple name.
+	 */
+	private static final class ImportCollector {
+		private final String packageName;
+		private final Set<?> alwaysQualify;
+		private final List<Scope> scopes = new ArrayList<>();
+		private final Map<String, Integer> typeVariables = new HashMap<>();
+		private final Map<String, ClassName> importableTypes = new LinkedHashMap<>();
+		private final Set<String> referencedNames = new HashSet<>();
+		private boolean javadoc;
+
+		ImportCollector(String packageName, Set<?> alwaysQualify) {
+			this.packageName = packageName;
+			this.alwaysQualify = alwaysQualify;
+		}
+
+		Map<String, ClassName> suggestedImports() {
+			Map<String, ClassName> ret = new LinkedHashMap<>(importableTypes);
+			ret.keySet().removeAll(referencedNames);
+			return ret;
+		}
+
+		void type(TypeSpec spec, String enumName) throws Throwable {
+			if (enumName != null) {
+				javadoc(spec.javadoc);
+				annotations(spec.annotations);
+				codeBlock(spec.anonymousTypeArguments);
+
+				if (spec.fieldSpecs.isEmpty() && spec.methodSpecs.isEmpty() && spec.typeSpecs.isEmpty()) {
+					return;
+				}
+			} else if (spec.anonymousTypeArguments != null) {
+				typeName(!spec.superinterfaces.isEmpty() ? spec.superinterfaces.get(0) : spec.superclass);
+				codeBlock(spec.anonymousTypeArguments);
+			} else {
+				// the header sees the enclosing types, but not the nested types of this one
+				pushScope(spec.name, Set.of());
+				javadoc(spec.javadoc);
+				annotations(spec.annotations);
+				typeVariables(spec.typeVariables);
+
+				if (spec.kind == TypeSpec.Kind.RECORD) {
+					for (ParameterSpec component : spec.recordComponents) {
+						parameter(component);
+					}
+				}
+
+				if (spec.kind == TypeSpec.Kind.CLASS && !spec.superclass.equals(ClassName.OBJECT)) {
+					typeName(spec.superclass);
+				}
+
+				for (TypeName superinterface : spec.superinterfaces) {
+					typeName(superinterface);
+				}
+
+				scopes.remove(scopes.size() - 1);
+			}
+
+			Set<String> nestedNames = new HashSet<>();
+			for (TypeSpec nested : spec.typeSpecs) {
+				nestedNames.add(nested.name);
+			}
+			pushScope(spec.name, nestedNames);
+
+			for (Map.Entry<String, TypeSpec> enumConstant : spec.enumConstants.entrySet()) {
+				type(enumConstant.getValue(), enumConstant.getKey());
+			}
+
+			for (FieldSpec field : spec.fieldSpecs) {
+				if (field.modifiers.contains(Modifier.STATIC)) {
+					field(field);
+				}
+			}
+
+			codeBlock(spec.staticBlock);
+
+			for (FieldSpec field : spec.fieldSpecs) {
+				if (!field.modifiers.contains(Modifier.STATIC)) {
+					field(field);
+				}
+			}
+
+			codeBlock(spec.initializerBlock);
+
+			for (MethodSpec method : spec.methodSpecs) {
+				if (method.isConstructor()) {
+					method(method);
+				}
+			}
+
+			for (MethodSpec method : spec.methodSpecs) {
+				if (!method.isConstructor()) {
+					method(method);
+				}
+			}
+
+			for (TypeSpec nested : spec.typeSpecs) {
+				type(nested, null);
+			}
+
+			scopes.remove(scopes.size() - 1);
+			popTypeVariables(spec.typeVariables);
+		}
+
+		private void pushScope(String name, Set<String> nestedNames) {
+			String canonicalName;
+
+			if (scopes.isEmpty()) {
+				canonicalName = packageName.isEmpty() ? name : packageName + "." + name;
+			} else {
+				canonicalName = scopes.get(scopes.size() - 1).canonicalName() + "." + name;
+			}
+
+			scopes.add(new Scope(canonicalName, name, nestedNames));
+		}
+
+		private void field(FieldSpec field) throws Throwable {
+			javadoc(field.javadoc);
+			annotations(field.annotations);
+			typeName(field.type);
+			codeBlock(field.initializer);
+		}
+
+		private void method(MethodSpec method) throws Throwable {
+			javadoc(method.javadoc);
+
+			for (ParameterSpec parameter : method.parameters) {
+				javadoc(parameter.javadoc);
+			}
+
+			annotations(method.annotations);
+			typeVariables(method.typeVariables);
+
+			if (!method.isConstructor()) {
+				typeName(method.returnType);
+			}
+
+			for (ParameterSpec parameter : method.parameters) {
+				parameter(parameter);
+			}
+
+			if (method.defaultValue != null) {
+				codeBlock(method.defaultValue);
+			}
+
+			for (TypeName exception : method.exceptions) {
+				typeName(exception);
+			}
+
+			if (!method.hasModifier(Modifier.ABSTRACT)) {
+				codeBlock(method.code);
+			}
+
+			popTypeVariables(method.typeVariables);
+		}
+
+		private void parameter(ParameterSpec parameter) throws Throwable {
+			annotations(parameter.annotations);
+			typeName(parameter.type);
+		}
+
+		private void typeVariables(List<TypeVariableName> declared) throws Throwable {
+			for (TypeVariableName typeVariable : declared) {
+				typeVariables.merge(typeVariable.name, 1, Integer::sum);
+			}
+
+			for (TypeVariableName typeVariable : declared) {
+				annotations(typeVariable.annotations);
+
+				for (TypeName bound : typeVariable.bounds) {
+					typeName(bound);
+				}
+			}
+		}
+
+		private void popTypeVariables(List<TypeVariableName> declared) {
+			for (TypeVariableName typeVariable : declared) {
+				typeVariables.computeIfPresent(typeVariable.name, (name, count) -> count == 1 ? null : count - 1);
+			}
+		}
+
+		private void javadoc(CodeBlock block) throws Throwable {
+			if (block.isEmpty()) {
+				return;
+			}
+
+			javadoc = true;
+
+			try {
+				codeBlock(block);
+			} finally {
+				javadoc = false;
+			}
+		}
+
+		private void annotations(List<AnnotationSpec> annotations) throws Throwable {
+			for (AnnotationSpec annotation : annotations) {
+				typeName(annotation.type);
+
+				for (List<CodeBlock> values : annotation.members.values()) {
+					for (CodeBlock value : values) {
+						codeBlock(value);
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void codeBlock(CodeBlock block) throws Throwable {
+			List<String> formatParts = (List<String>) FORMAT_PARTS.invoke(block);
+			List<Object> args = (List<Object>) ARGS.invoke(block);
+			int arg = 0;
+
+			for (String part : formatParts) {
+				switch (part) {
+				case "$L" -> literal(args.get(arg++));
+				case "$T" -> typeName((TypeName) args.get(arg++));
+				case "$N", "$S" -> arg++;
+				default -> {
+					// text and argument-less placeholders
+				}
+				}
+			}
+		}
+
+		private void literal(Object value) throws Throwable {
+			if (value instanceof TypeSpec type) {
+				type(type, null);
+			} else if (value instanceof AnnotationSpec annotation) {
+				annotations(List.of(annotation));
+			} else if (value instanceof CodeBlock block) {
+				codeBlock(block);
+			}
+		}
+
+		private void typeName(TypeName type) throws Throwable {
+			if (type instanceof ClassName className) {
+				className(className);
+			} else if (type instanceof ParameterizedTypeName parameterized) {
+				ParameterizedTypeName enclosing = (ParameterizedTypeName) ENCLOSING_TYPE.invoke(parameterized);
+
+				if (enclosing != null) {
+					typeName(enclosing);
+					annotations(parameterized.annotations);
+				} else if (parameterized.isAnnotated() && !parameterized.rawType.isAnnotated()) {
+					className(parameterized.rawType.annotated(parameterized.annotations));
+				} else {
+					className(parameterized.rawType);
+				}
+
+				for (TypeName argument : parameterized.typeArguments) {
+					typeName(argument);
+				}
+			} else if (type instanceof ArrayTypeName array) {
+				// the element type comes first, then the annotations of each dimension from the outside in
+				TypeName leaf = array.componentType;
+				while (leaf instanceof ArrayTypeName component) {
+					leaf = component.componentType;
+				}
+
+				typeName(leaf);
+
+				for (TypeName dimension = array; dimension instanceof ArrayTypeName component; dimension = component.componentType) {
+					annotations(dimension.annotations);
+				}
+			} else if (type instanceof WildcardTypeName wildcard) {
+				annotations(wildcard.annotations);
+
+				if (wildcard.lowerBounds.size() == 1) {
+					typeName(wildcard.lowerBounds.get(0));
+				} else if (!wildcard.upperBounds.get(0).equals(TypeName.OBJECT)) {
+					typeName(wildcard.upperBounds.get(0));
+				}
+			} else {
+				// type variables, primitives and void
+				annotations(type.annotations);
+			}
+		}
+
+		private void className(ClassName className) throws Throwable {
+			List<ClassName> enclosingClasses = new ArrayList<>();
+			for (ClassName each = className; each != null; each = each.enclosingClassName()) {
+				enclosingClasses.add(0, each);
+			}
+
+			boolean emitted = false;
+
+			for (ClassName each : enclosingClasses) {
+				// the name is looked up from the first class that has to be written out
+				if (!emitted && (each.isAnnotated() || each == className)) {
+					lookupName(each);
+					emitted = true;
+				}
+
+				if (emitted) {
+					annotations(each.annotations);
+				}
+			}
+		}
+
+		private void lookupName(ClassName className) {
+			String topLevelSimpleName = className.topLevelClassName().simpleName();
+
+			// masked by a type variable, written out in full
+			if (typeVariables.containsKey(topLevelSimpleName)) {
+				return;
+			}
+
+			boolean nameResolved = false;
+
+			for (ClassName each = className; each != null; each = each.enclosingClassName()) {
+				String resolved = resolve(each.simpleName());
+				nameResolved = resolved != null;
+
+				if (resolved != null && resolved.equals(each.canonicalName())) {
+					return;
+				}
+			}
+
+			if (nameResolved) {
+				return;
+			}
+
+			if (packageName.equals(className.packageName())) {
+				referencedNames.add(topLevelSimpleName);
+				return;
+			}
+
+			if (!javadoc && !className.packageName().isEmpty() && !alwaysQualify.contains(className.simpleName())) {
+				ClassName topLevel = className.topLevelClassName();
+				importableTypes.putIfAbsent(topLevel.simpleName(), topLevel);
+			}
+		}
+
+		/**
+		 * Returns the canonical name a simple name refers to in the current scope, without imports.
+		 */
+		private String resolve(String simpleName) {
+			for (int i = scopes.size() - 1; i >= 0; i--) {
+				Scope scope = scopes.get(i);
+
+				if (scope.nestedNames().contains(simpleName)) {
+					return scope.canonicalName() + "." + simpleName;
+				}
+			}
+
+			if (!scopes.isEmpty() && scopes.get(0).name().equals(simpleName)) {
+				return scopes.get(0).canonicalName();
+			}
+
+			return null;
+		}
+	}
+
+	private record Scope(String canonicalName, String name, Set<String> nestedNames) {
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A least recently used cache of loaded inputs, such as mappings or library indexes.
+ *
+ * <p>Each entry remembers a hash of what it was loaded from, and is reloaded
+ * once that hash changes. Entries are evicted once their estimated total
+ * size goes over the budget.
+ */
+final class WarmCache {
+	private final long budget;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long size;
+
+	WarmCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the cached value for a key, or loads it if it is missing or its hash changed.
+	 *
+	 * @param weigher estimates the retained size of a value in bytes
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized <V> V get(String key, String hash, Supplier<V> loader, ToLongFunction<V> weigher) {
+		Entry entry = entries.get(key);
+
+		if (entry != null && entry.hash.equals(hash)) {
+			return (V) entry.value;
+		}
+
+		if (entry != null) {
+			remove(key);
+		}
+
+		V value = loader.get();
+		long weight = weigher.applyAsLong(value);
+		entries.put(key, new Entry(hash, value, weight));
+		size += weight;
+		evict(key);
+		return value;
+	}
+
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+		while (size > budget && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+
+			if (eldest.getKey().equals(keep)) {
+				continue; // always keep what is being used right now
+			}
+
+			size -= eldest.getValue().weight;
+			iterator.remove();
+		}
+	}
+
+	private void remove(String key) {
+		Entry removed = entries.remove(key);
+
+		if (removed != null) {
+			size -= removed.weight;
+		}
+	}
+
+	synchronized int count() {
+		return entries.size();
+	}
+
+	synchronized long size() {
+		return size;
+	}
+
+	private record Entry(String hash, Object value, long weight) {
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * A set of class files to generate sources for.
+ *
+ * <p>Class names are read from the class files themselves, so the
+ * order and naming of entries do not matter.
+ */
+@FunctionalInterface
+public interface InputSource {
+	/**
+	 * Passes the bytes of every class file in this input to the visitor.
+	 */
+	void forEachClass(ClassFileVisitor visitor) throws IOException;
+
+	/**
+	 * Returns a jar, or a directory if the path is one.
+	 */
+	static InputSource of(Path path) {
+		return Files.isDirectory(path) ? directory(path) : jar(path);
+	}
+
+	static InputSource jar(Path jar) {
+		return visitor -> {
+			try (JarFile jarFile = new JarFile(jar.toFile())) {
+				Enumeration<JarEntry> entryEnumerator = jarFile.entries();
+
+				while (entryEnumerator.hasMoreElements()) {
+					JarEntry entry = entryEnumerator.nextElement();
+
+					if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+						continue;
+					}
+
+					try (InputStream is = jarFile.getInputStream(entry)) {
+						visitor.visit(is.readAllBytes());
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns an exploded class root, such as a compiler output directory.
+	 */
+	static InputSource directory(Path directory) {
+		return visitor -> {
+			try (Stream<Path> stream = Files.walk(directory)) {
+				Iterator<Path> files = stream.iterator();
+
+				while (files.hasNext()) {
+					Path file = files.next();
+
+					if (file.getFileName().toString().endsWith(".class") && Files.isRegularFile(file)) {
+						visitor.visit(Files.readAllBytes(file));
+					}
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+	}
+
+	/**
+	 * Returns classes that are already in memory, such as the output of a remapper.
+	 *
+	 * @param classes class file bytes, keyed by any name
+	 */
+	static InputSource of(Map<String, byte[]> classes) {
+		return visitor -> {
+			for (byte[] bytes : classes.values()) {
+				visitor.visit(bytes);
+			}
+		};
+	}
+
+	/**
+	 * Returns classes from a stream that is opened again every time the input is read.
+	 */
+	static InputSource of(Supplier<? extends Stream<byte[]>> classes) {
+		return visitor -> {
+			try (Stream<byte[]> stream = classes.get()) {
+				Iterator<byte[]> iterator = stream.iterator();
+
+				while (iterator.hasNext()) {
+					visitor.visit(iterator.next());
+				}
+			}
+		};
+	}
+
+	@FunctionalInterface
+	interface ClassFileVisitor {
+		void visit(byte[] classFile) throws IOException;
+	}
+}
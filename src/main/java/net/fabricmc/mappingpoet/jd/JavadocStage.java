@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.jd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import net.fabricmc.mappingpoet.output.MemoryOutputSink;
+
+/**
+ * Runs javadoc in this JVM over sources generated into a {@link MemoryOutputSink},
+ * with the {@link MappingTaglet}, its stylesheet, the copy on click and mapping search scripts set up.
+ * The mapping search is only set up when its index is already in the output directory.
+ */
+public final class JavadocStage {
+	private static final String SCRIPT = "copy_on_click.js";
+	private static final String SEARCH_SCRIPT = "mapping_search.js";
+	// written by MappingsStore#writeSearchIndex, the search script fails without it
+	private static final String SEARCH_INDEX = "mapping-search/index.js";
+	private static final String STYLESHEET = "forms.css";
+	private static final String HEADER = "javadoc_header.txt";
+
+	private JavadocStage() {
+	}
+
+	/**
+	 * Documents all sources of the sink.
+	 *
+	 * @param classpath jars and directories of the classes the sources refer to
+	 * @param mappingIndex the index the sources refer to if they were generated
+	 * {@linkplain net.fabricmc.mappingpoet.MappingsStore#withIndex() with one}, or {@code null}
+	 * @param compactMappings whether mapping tables are built by a script when expanded,
+	 * see {@link MappingTaglet#COMPACT_PROPERTY}
+	 * @param extraOptions more javadoc options, such as {@code -link}
+	 * @param out where javadoc reports to, or {@code null} for {@link System#err}
+	 * @return whether javadoc succeeded
+	 */
+	public static boolean run(MemoryOutputSink sources, Path outputDir, List<Path> classpath, Path mappingIndex, boolean compactMappings, List<String> extraOptions, Writer out) {
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+
+		if (tool == null) {
+			throw new IllegalStateException("javadoc is not available, run on a JDK rather than a JRE");
+		}
+
+		Path resources = null;
+		String previousIndex = System.getProperty(MappingTaglet.INDEX_PROPERTY);
+		String previousCompact = System.getProperty(MappingTaglet.COMPACT_PROPERTY);
+
+		try (StandardJavaFileManager standardFileManager = tool.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8)) {
+			Files.createDirectories(outputDir);
+			resources = Files.createTempDirectory("mappingpoet-javadoc");
+			Path stylesheet = copyResource(STYLESHEET, resources.resolve(STYLESHEET));
+			// the header loads the scripts relative to the doc root, javadoc does not copy them by itself
+			copyResource(SCRIPT, outputDir.resolve(SCRIPT));
+			String header = readResource(HEADER).strip();
+
+			if (Files.exists(outputDir.resolve(SEARCH_INDEX))) {
+				copyResource(SEARCH_SCRIPT, outputDir.resolve(SEARCH_SCRIPT));
+				header += "\n<script src=\"{@docRoot}/" + SEARCH_SCRIPT + "\"></script>";
+			}
+
+			standardFileManager.setLocationFromPaths(DocumentationTool.Location.DOCUMENTATION_OUTPUT, List.of(outputDir));
+			standardFileManager.setLocationFromPaths(DocumentationTool.Location.TAGLET_PATH, List.of(codeSource()));
+
+			if (!classpath.isEmpty()) {
+				standardFileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+			}
+
+			List<String> options = new ArrayList<>();
+			options.add("-quiet");
+			options.add("-Xdoclint:none");
+			// generated sources refer to library classes that may not be on the classpath
+			options.add("--ignore-source-errors");
+			options.add("-taglet");
+			options.add(MappingTaglet.class.getName());
+			options.add("--add-stylesheet");
+			options.add(stylesheet.toString());
+			options.add("-header");
+			options.add(header);
+			options.addAll(extraOptions);
+
+			if (mappingIndex != null) {
+				// the taglet is created by javadoc, a property is the only way to reach it
+				System.setProperty(MappingTaglet.INDEX_PROPERTY, mappingIndex.toAbsolutePath().toString());
+			}
+
+			System.setProperty(MappingTaglet.COMPACT_PROPERTY, Boolean.toString(compactMappings));
+
+			DocumentationTool.DocumentationTask task = tool.getTask(out, sources.fileManager(standardFileManager), null, null, options, sources.getFiles());
+			MappingTaglet.reset();
+			return task.call();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			MappingTaglet.reset(); // releases the mapped index
+
+			if (mappingIndex != null) {
+				restoreProperty(MappingTaglet.INDEX_PROPERTY, previousIndex);
+			}
+
+			restoreProperty(MappingTaglet.COMPACT_PROPERTY, previousCompact);
+
+			if (resources != null) {
+				try {
+					Files.deleteIfExists(resources.resolve(STYLESHEET));
+					Files.deleteIfExists(resources);
+				} catch (IOException ignored) {
+					// only a temporary file
+				}
+			}
+		}
+	}
+
+	private static void restoreProperty(String key, String previous) {
+		if (previous == null) {
+			System.clearProperty(key);
+		} else {
+			System.setProperty(key, previous);
+		}
+	}
+
+	private static Path codeSource() {
+		try {
+			return Paths.get(MappingTaglet.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Path copyResource(String name, Path target) throws IOException {
+		try (InputStream is = openResource(name)) {
+			Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		return target;
+	}
+
+	private static String readResource(String name) throws IOException {
+		try (InputStream is = openResource(name)) {
+			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static InputStream openResource(String name) throws IOException {
+		InputStream is = JavadocStage.class.getResourceAsStream("/" + name);
+
+		if (is == null) {
+			throw new IOException("Missing resource " + name);
+		}
+
+		return is;
+	}
+}
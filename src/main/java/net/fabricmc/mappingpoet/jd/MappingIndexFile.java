@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.jd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped index of mapping names, which generated sources refer to with
+ * {@code @mapping {@literal #<id>}} instead of listing all names inline.
+ *
+ * <p>The file starts with {@link #MAGIC} and {@link #VERSION}, the namespace
+ * names and the number of elements, followed by the offset of each element. An
+ * element is a flag telling whether it has mixin selectors, followed by the name
+ * (and selector) in each namespace. All numbers are big endian ints, strings are
+ * an unsigned short length followed by that many bytes of UTF-8.
+ */
+public final class MappingIndexFile {
+	public static final int MAGIC = 0x4D504958; // MPIX
+	public static final int VERSION = 1;
+	public static final byte CLASS = 0;
+	public static final byte MEMBER = 1;
+
+	private final ByteBuffer buffer;
+	private final String[] namespaces;
+	private final int size;
+	private final int offsetsStart;
+
+	private MappingIndexFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a version " + VERSION + " mapping index");
+		}
+
+		int position = 8;
+		namespaces = new String[buffer.getInt(position)];
+		position += 4;
+
+		for (int i = 0; i < namespaces.length; i++) {
+			namespaces[i] = readString(position);
+			position += 2 + (buffer.getShort(position) & 0xFFFF);
+		}
+
+		size = buffer.getInt(position);
+		offsetsStart = position + 4;
+	}
+
+	public static MappingIndexFile open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return new MappingIndexFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String[] namespaces() {
+		return namespaces.clone();
+	}
+
+	/**
+	 * Returns a row of namespace, name and, for members, mixin selector for each namespace.
+	 */
+	public String[][] rows(int id) {
+		if (id < 0 || id >= size) {
+			throw new IllegalArgumentException("No mapping index entry #" + id);
+		}
+
+		int position = buffer.getInt(offsetsStart + 4 * id);
+		boolean member = buffer.get(position++) == MEMBER;
+		String[][] rows = new String[namespaces.length][];
+
+		for (int i = 0; i < namespaces.length; i++) {
+			String name = readString(position);
+			position += 2 + (buffer.getShort(position) & 0xFFFF);
+
+			if (member) {
+				String selector = readString(position);
+				position += 2 + (buffer.getShort(position) & 0xFFFF);
+				rows[i] = new String[] {namespaces[i], name, selector};
+			} else {
+				rows[i] = new String[] {namespaces[i], name};
+			}
+		}
+
+		return rows;
+	}
+
+	private String readString(int position) {
+		int length = buffer.getShort(position) & 0xFFFF;
+		return StandardCharsets.UTF_8.decode(buffer.slice(position + 2, length)).toString();
+	}
+}
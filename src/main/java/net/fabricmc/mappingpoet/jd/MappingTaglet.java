@@ -15,10 +15,16 @@
  */
 package net.fabricmc.mappingpoet.jd;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
@@ -30,6 +36,34 @@ import jdk.javadoc.doclet.Taglet;
 
 @SuppressWarnings("unused")
 public final class MappingTaglet implements Taglet {
+	/**
+	 * The system property with the path of the {@link MappingIndexFile} that
+	 * {@code @mapping #<id>} tags refer to.
+	 */
+	public static final String INDEX_PROPERTY = "mappingpoet.mappingIndex";
+	/**
+	 * The system property that, when {@code true}, has mappings rendered as data for
+	 * {@code copy_on_click.js} to build the table from when expanded, with namespaces
+	 * of identical names collapsed into one row.
+	 */
+	public static final String COMPACT_PROPERTY = "mappingpoet.compactMappings";
+
+	private static final String TYPE_HEADER = header(true);
+	private static final String MEMBER_HEADER = header(false);
+	private static final String FOOTER = "</tbody>\n</table></div></dd>\n";
+	private static final String[] PLAIN_CELL = {"<td>", "</td>\n"};
+	private static final String[] CODE_CELL = {"<td><span class=\"copyable\"><code>", "</code></span></td>\n"};
+	private static final int MAX_CACHED_ROWS = 1 << 14;
+	private static final int MAX_BUFFER_CAPACITY = 1 << 16;
+	// javadoc renders on one thread, but nothing stops it from using more
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+	// rendered rows by tag body, only valid for the index of the current run
+	private static final Map<String, String> TYPE_ROWS = new ConcurrentHashMap<>();
+	private static final Map<String, String> MEMBER_ROWS = new ConcurrentHashMap<>();
+
+	// guarded by the class, opened on first use in every javadoc run
+	private static MappingIndexFile index;
+	private static String indexPath;
 
 	public MappingTaglet() {
 		// Required by javadoc
@@ -53,6 +87,169 @@ public final class MappingTaglet implements Taglet {
 	@Override
 	public String toString(List<? extends DocTree> tags, Element element) {
 		boolean typeDecl = element instanceof TypeElement; // means it's a class, itf, enum, etc.
+
+		if (Boolean.getBoolean(COMPACT_PROPERTY)) {
+			return toCompactString(tags, typeDecl);
+		}
+
+		StringBuilder builder = BUFFER.get();
+		builder.setLength(0);
+		builder.append(typeDecl ? TYPE_HEADER : MEMBER_HEADER);
+
+		for (DocTree each : tags) {
+			String body = getBody((UnknownBlockTagTree) each);
+			if (body.startsWith("#")) {
+				getIndex(); // drops rows cached from another index
+			}
+
+			Map<String, String> cache = typeDecl ? TYPE_ROWS : MEMBER_ROWS;
+			String rows = cache.get(body);
+
+			if (rows == null) {
+				int start = builder.length();
+				appendRows(builder, body, typeDecl);
+
+				if (cache.size() >= MAX_CACHED_ROWS) {
+					cache.clear(); // cheaper than tracking usage, rows rarely repeat far apart
+				}
+
+				cache.put(body, builder.substring(start));
+			} else {
+				builder.append(rows);
+			}
+		}
+
+		builder.append(FOOTER);
+		return finish(builder);
+	}
+
+	/**
+	 * Renders rows as {@code namespace[/namespace...],name[,selector]} separated by spaces,
+	 * which names and descriptors never contain.
+	 */
+	private static String toCompactString(List<? extends DocTree> tags, boolean typeDecl) {
+		int cells = typeDecl ? 2 : 3;
+		List<String[]> rows = new ArrayList<>();
+
+		for (DocTree each : tags) {
+			String body = getBody((UnknownBlockTagTree) each);
+
+			if (body.startsWith("#")) {
+				Collections.addAll(rows, getIndex().rows(Integer.parseInt(body, 1, body.length(), 10)));
+			} else {
+				rows.add(body.split(":", cells));
+			}
+		}
+
+		StringBuilder builder = BUFFER.get();
+		builder.setLength(0);
+		builder.append("<dt>Mappings:</dt>\n");
+		builder.append("<dd><details class=\"fabric mapping\" data-mapping=\"");
+
+		for (int start = 0, end; start < rows.size(); start = end) {
+			String[] row = rows.get(start);
+
+			if (row.length < cells) {
+				throw new IllegalArgumentException("Malformed @mapping tag: " + String.join(":", row));
+			}
+
+			if (start != 0) {
+				builder.append(' ');
+			}
+
+			appendEscaped(builder, row[0], 0, row[0].length());
+
+			for (end = start + 1; end < rows.size() && sameNames(row, rows.get(end), cells); end++) {
+				builder.append('/');
+				appendEscaped(builder, rows.get(end)[0], 0, rows.get(end)[0].length());
+			}
+
+			for (int i = 1; i < cells; i++) {
+				builder.append(',');
+				appendEscaped(builder, row[i], 0, row[i].length());
+			}
+		}
+
+		builder.append("\"><summary>Show</summary></details></dd>\n");
+		return finish(builder);
+	}
+
+	private static boolean sameNames(String[] row, String[] other, int cells) {
+		if (other.length < cells) {
+			return false;
+		}
+
+		for (int i = 1; i < cells; i++) {
+			if (!row[i].equals(other[i])) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static String finish(StringBuilder builder) {
+		String ret = builder.toString();
+
+		if (builder.capacity() > MAX_BUFFER_CAPACITY) {
+			BUFFER.remove();
+		}
+
+		return ret;
+	}
+
+	private static String getBody(UnknownBlockTagTree tag) {
+		List<? extends DocTree> content = tag.getContent();
+
+		if (content.size() == 1) {
+			return ((LiteralTree) content.get(0)).getBody().getBody();
+		}
+
+		StringBuilder body = new StringBuilder();
+		for (DocTree each : content) {
+			body.append(((LiteralTree) each).getBody().getBody());
+		}
+		return body.toString();
+	}
+
+	private static void appendRows(StringBuilder builder, String body, boolean typeDecl) {
+		if (body.startsWith("#")) {
+			for (String[] row : getIndex().rows(Integer.parseInt(body, 1, body.length(), 10))) {
+				builder.append("<tr>\n");
+				appendCell(builder, PLAIN_CELL, row[0], 0, row[0].length());
+				appendCell(builder, CODE_CELL, row[1], 0, row[1].length());
+				if (!typeDecl) {
+					appendCell(builder, CODE_CELL, row[2], 0, row[2].length());
+				}
+				builder.append("</tr>\n");
+			}
+
+			return;
+		}
+
+		// namespace:name:selector, only the selector may contain more colons
+		int nameStart = body.indexOf(':') + 1;
+		int nameEnd = body.indexOf(':', nameStart);
+		if (nameStart == 0 || nameEnd < 0 && !typeDecl) {
+			throw new IllegalArgumentException("Malformed @mapping tag: " + body);
+		}
+
+		builder.append("<tr>\n");
+		appendCell(builder, PLAIN_CELL, body, 0, nameStart - 1);
+		appendCell(builder, CODE_CELL, body, nameStart, nameEnd < 0 ? body.length() : nameEnd);
+		if (!typeDecl) {
+			appendCell(builder, CODE_CELL, body, nameEnd + 1, body.length());
+		}
+		builder.append("</tr>\n");
+	}
+
+	private static void appendCell(StringBuilder builder, String[] cell, String text, int start, int end) {
+		builder.append(cell[0]);
+		appendEscaped(builder, text, start, end);
+		builder.append(cell[1]);
+	}
+
+	private static String header(boolean typeDecl) {
 		StringBuilder builder = new StringBuilder();
 		builder.append("<dt>Mappings:</dt>\n");
 		builder.append("<dd><div class=\"fabric\"><table class=\"mapping\" summary=\"Mapping data\">\n");
@@ -64,36 +261,58 @@ public final class MappingTaglet implements Taglet {
 		}
 		builder.append("</thead>\n");
 		builder.append("<tbody>\n");
+		return builder.toString();
+	}
 
-		for (DocTree each : tags) {
-			String body = ((UnknownBlockTagTree) each).getContent().stream().map(t -> ((LiteralTree) t).getBody().getBody()).collect(Collectors.joining());
-			String[] ans = body.split(":", 3);
-			builder.append("<tr>\n");
-			builder.append(String.format("<td>%s</td>\n", escaped(ans[0])));
-			builder.append(String.format("<td><span class=\"copyable\"><code>%s</code></span></td>\n", escaped(ans[1])));
-			if (!typeDecl) {
-				builder.append(String.format("<td><span class=\"copyable\"><code>%s</code></span></td>\n", escaped(ans[2])));
-			}
-			builder.append("</tr>\n");
+	/**
+	 * Forgets the opened index and the rows rendered from it, so the next javadoc run
+	 * opens the index again.
+	 *
+	 * <p>The taglet class, and so the index, outlives a run when javadoc runs in the
+	 * same JVM more than once. The file may have been written again in the meantime,
+	 * even at the same path, and ids may refer to other elements.
+	 */
+	public static void reset() {
+		synchronized (MappingTaglet.class) {
+			index = null;
+			indexPath = null;
+			TYPE_ROWS.clear();
+			MEMBER_ROWS.clear();
 		}
+	}
 
-		builder.append("</tbody>\n");
-		builder.append("</table></div></dd>\n");
-		return builder.toString();
+	private static MappingIndexFile getIndex() {
+		String path = System.getProperty(INDEX_PROPERTY);
+		if (path == null) {
+			throw new IllegalStateException("@mapping refers to a mapping index, but " + INDEX_PROPERTY + " is not set");
+		}
+
+		synchronized (MappingTaglet.class) {
+			if (!path.equals(indexPath)) {
+				try {
+					index = MappingIndexFile.open(Paths.get(path));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				indexPath = path;
+				TYPE_ROWS.clear();
+				MEMBER_ROWS.clear();
+			}
+
+			return index;
+		}
 	}
 
 	// I hate <init>
-	private static String escaped(String original) {
-		StringBuilder builder = new StringBuilder(original.length());
-		final int len = original.length();
-		for (int i = 0; i < len; i++) {
+	private static void appendEscaped(StringBuilder builder, String original, int start, int end) {
+		int plainStart = start;
+		for (int i = start; i < end; i++) {
 			char c = original.charAt(i);
 			if (c > 127 || c == '"' || c == '\'' || c == '<' || c == '>' || c == '&') {
-				builder.append("&#").append((int) c).append(";");
-			} else {
-				builder.append(c);
+				builder.append(original, plainStart, i).append("&#").append((int) c).append(';');
+				plainStart = i + 1;
 			}
 		}
-		return builder.toString();
+		builder.append(original, plainStart, end);
 	}
 }
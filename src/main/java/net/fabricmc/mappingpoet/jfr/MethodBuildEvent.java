@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("net.fabricmc.mappingpoet.MethodBuild")
+@Label("Method Build")
+@Category({"MappingPoet", "Generation"})
+@Description("Building the signature, parameters and documentation of a method")
+@StackTrace(false)
+public final class MethodBuildEvent extends Event {
+	@Label("Class")
+	@Description("Internal name of the declaring class")
+	public String className;
+
+	@Label("Method")
+	public String methodName;
+
+	@Label("Descriptor")
+	public String methodDescriptor;
+}
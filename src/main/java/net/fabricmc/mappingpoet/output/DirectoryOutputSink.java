@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes source files into a directory tree, one directory per package.
+ */
+public final class DirectoryOutputSink implements OutputSink {
+	private final Path directory;
+
+	public DirectoryOutputSink(Path directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public void write(String packageName, String fileName, String content) throws IOException {
+		Path packageDirectory = directory;
+
+		if (!packageName.isEmpty()) {
+			for (String part : packageName.split("\\.")) {
+				packageDirectory = packageDirectory.resolve(part);
+			}
+
+			Files.createDirectories(packageDirectory);
+		}
+
+		Files.writeString(packageDirectory.resolve(fileName), content);
+	}
+}
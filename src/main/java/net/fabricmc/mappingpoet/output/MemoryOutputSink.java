@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Keeps source files in memory, so they can be handed to {@code javax.tools}
+ * (the compiler or javadoc) without touching the file system.
+ */
+public final class MemoryOutputSink implements OutputSink {
+	// binary name -> file, in write order
+	private final Map<String, SourceFile> files = new LinkedHashMap<>();
+
+	@Override
+	public void write(String packageName, String fileName, String content) {
+		String simpleName = fileName.endsWith(JavaFileObject.Kind.SOURCE.extension)
+				? fileName.substring(0, fileName.length() - JavaFileObject.Kind.SOURCE.extension.length())
+				: fileName;
+		String binaryName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		files.put(binaryName, new SourceFile(packageName, binaryName, content));
+	}
+
+	/**
+	 * Returns all files written so far, usable as compilation units.
+	 */
+	public List<JavaFileObject> getFiles() {
+		return Collections.unmodifiableList(new ArrayList<>(files.values()));
+	}
+
+	/**
+	 * Returns the source of a top-level class, or {@code null} if there is none.
+	 *
+	 * @param binaryName the dot separated name of the class, such as {@code net.minecraft.Foo}
+	 */
+	public String getContent(String binaryName) {
+		SourceFile file = files.get(binaryName);
+		return file == null ? null : file.content;
+	}
+
+	/**
+	 * Returns a file manager which offers the files of this sink on the
+	 * {@linkplain StandardLocation#SOURCE_PATH source path}, and forwards
+	 * everything else to the given file manager.
+	 */
+	public JavaFileManager fileManager(JavaFileManager delegate) {
+		return new ForwardingJavaFileManager<>(delegate) {
+			@Override
+			public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+				Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+
+				if (location != StandardLocation.SOURCE_PATH || !kinds.contains(JavaFileObject.Kind.SOURCE)) {
+					return listed;
+				}
+
+				List<JavaFileObject> ret = new ArrayList<>();
+				listed.forEach(ret::add);
+
+				for (SourceFile file : files.values()) {
+					if (file.packageName.equals(packageName) || recurse && (packageName.isEmpty() || file.packageName.startsWith(packageName + "."))) {
+						ret.add(file);
+					}
+				}
+
+				return ret;
+			}
+
+			@Override
+			public JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind) throws IOException {
+				if (location == StandardLocation.SOURCE_PATH && kind == JavaFileObject.Kind.SOURCE) {
+					SourceFile file = files.get(className);
+
+					if (file != null) {
+						return file;
+					}
+				}
+
+				return super.getJavaFileForInput(location, className, kind);
+			}
+
+			@Override
+			public String inferBinaryName(Location location, JavaFileObject file) {
+				if (file instanceof SourceFile sourceFile) {
+					return sourceFile.binaryName;
+				}
+
+				return super.inferBinaryName(location, file);
+			}
+
+			@Override
+			public boolean isSameFile(FileObject a, FileObject b) {
+				if (a instanceof SourceFile || b instanceof SourceFile) {
+					return a == b;
+				}
+
+				return super.isSameFile(a, b);
+			}
+		};
+	}
+
+	private static final class SourceFile extends SimpleJavaFileObject {
+		final String packageName;
+		final String binaryName;
+		final String content;
+
+		SourceFile(String packageName, String binaryName, String content) {
+			super(URI.create("memory:///" + binaryName.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.packageName = packageName;
+			this.binaryName = binaryName;
+			this.content = content;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return content;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A destination for generated source files, one per top-level class.
+ *
+ * <p>Files are written one at a time, in the order of their class names.
+ */
+public interface OutputSink extends Closeable {
+	/**
+	 * Writes one source file.
+	 *
+	 * @param packageName the package of the class, dot separated and empty for the unnamed package
+	 * @param fileName the name of the file, such as {@code Foo.java}
+	 * @param content the source code
+	 */
+	void write(String packageName, String fileName, String content) throws IOException;
+
+	/**
+	 * Called once before the first file is written, with the packages of all files to come.
+	 */
+	default void prepare(Set<String> packageNames) throws IOException {
+	}
+
+	@Override
+	default void close() throws IOException {
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes source files into a directory tree like {@link DirectoryOutputSink}, with
+ * fewer system calls per file and several files in flight at once.
+ *
+ * <p>Package directories are created up front when the sink is
+ * {@linkplain #prepare(Set) prepared}. Files are handed to a pool of writer threads,
+ * each of which encodes into a buffer of its own and writes it through a
+ * {@link FileChannel} in one go. A failed write is thrown from a later call to
+ * {@link #write(String, String, String)} or from {@link #close()}, which waits for
+ * all files to be written.
+ */
+public final class PooledDirectoryOutputSink implements OutputSink {
+	private static final int INITIAL_BUFFER_SIZE = 1 << 18;
+	// larger buffers are not kept for the next file
+	private static final int MAX_BUFFER_SIZE = 1 << 22;
+	private static final int FILES_IN_FLIGHT_PER_THREAD = 4;
+
+	private final Path directory;
+	private final ExecutorService executor;
+	// bounds the memory held by files waiting to be written
+	private final Semaphore inFlight;
+	private final Set<String> createdPackages = ConcurrentHashMap.newKeySet();
+	private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE));
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final LongAdder bytesWritten = new LongAdder();
+	private final LongAdder filesWritten = new LongAdder();
+	private volatile long firstWrite;
+	private volatile long lastWrite;
+
+	/**
+	 * @param threads the number of writer threads, or {@code 0} to write on the calling thread
+	 */
+	public PooledDirectoryOutputSink(Path directory, int threads) {
+		if (threads < 0) {
+			throw new IllegalArgumentException("Negative writer thread count " + threads);
+		}
+
+		this.directory = directory;
+		this.inFlight = threads == 0 ? null : new Semaphore(threads * FILES_IN_FLIGHT_PER_THREAD);
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = threads == 0 ? null : Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "mappingpoet-writer-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void prepare(Set<String> packageNames) throws IOException {
+		for (String packageName : packageNames) {
+			createPackageDirectory(packageName);
+		}
+	}
+
+	@Override
+	public void write(String packageName, String fileName, String content) throws IOException {
+		throwFailure();
+
+		if (firstWrite == 0) {
+			firstWrite = System.nanoTime();
+		}
+
+		Path file = createPackageDirectory(packageName).resolve(fileName);
+
+		if (executor == null) {
+			writeFile(file, content);
+			return;
+		}
+
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to write " + file);
+		}
+
+		executor.execute(() -> {
+			try {
+				writeFile(file, content);
+			} catch (Throwable t) {
+				// anything the writer thread drops would otherwise leave the file silently missing
+				failure.compareAndSet(null, t);
+			} finally {
+				inFlight.release();
+			}
+		});
+	}
+
+	private Path createPackageDirectory(String packageName) throws IOException {
+		Path packageDirectory = packageName.isEmpty() ? directory : directory.resolve(packageName.replace('.', '/'));
+
+		if (createdPackages.add(packageName)) {
+			Files.createDirectories(packageDirectory);
+		}
+
+		return packageDirectory;
+	}
+
+	private void writeFile(Path file, String content) throws IOException {
+		ByteBuffer buffer = encode(content);
+		int bytes = buffer.remaining();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		bytesWritten.add(bytes);
+		filesWritten.increment();
+		lastWrite = System.nanoTime();
+	}
+
+	private ByteBuffer encode(String content) throws CharacterCodingException {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+		// sources are mostly ASCII, the guess only falls short for heavy use of other characters
+		int expected = (int) Math.min(Integer.MAX_VALUE, (long) content.length() * 11 / 10);
+		ByteBuffer buffer = buffers.get();
+
+		if (buffer.capacity() < expected) {
+			buffer = allocate(expected);
+		}
+
+		CharBuffer chars = CharBuffer.wrap(content);
+
+		while (true) {
+			buffer.clear();
+			chars.rewind();
+			encoder.reset();
+			CoderResult result = encoder.encode(chars, buffer, true);
+
+			if (!result.isOverflow()) {
+				result = encoder.flush(buffer);
+			}
+
+			if (result.isUnderflow()) {
+				break;
+			}
+
+			if (result.isOverflow()) {
+				buffer = allocate((int) Math.min(Integer.MAX_VALUE, (long) content.length() * 3));
+			} else {
+				result.throwException();
+			}
+		}
+
+		return buffer.flip();
+	}
+
+	private ByteBuffer allocate(int size) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+
+		if (size <= MAX_BUFFER_SIZE) {
+			buffers.set(buffer);
+		}
+
+		return buffer;
+	}
+
+	private void throwFailure() throws IOException {
+		Throwable t = failure.get();
+
+		if (t != null) {
+			throw new IOException("Failed to write a previous file", t);
+		}
+	}
+
+	/**
+	 * The bytes of all files written so far.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	public long getFilesWritten() {
+		return filesWritten.sum();
+	}
+
+	/**
+	 * The bytes written per second, from the start of the first write to the end of the last one.
+	 */
+	public double getBytesPerSecond() {
+		long start = firstWrite;
+		long end = lastWrite;
+		return start == 0 || end <= start ? 0 : getBytesWritten() * 1e9 / (end - start);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (executor != null) {
+			executor.shutdown();
+
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+					// keep waiting, a slow file system is no reason to give up on the output
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for files to be written");
+			}
+		}
+
+		throwFailure();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams source files into a zip, such as a sources jar, without
+ * any intermediate files.
+ *
+ * <p>All entries share a fixed timestamp, so the same input always
+ * yields the same bytes. Closing this sink closes the stream.
+ */
+public final class ZipOutputSink implements OutputSink {
+	// same as the one Gradle uses for reproducible archives
+	private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+	private final ZipOutputStream zip;
+	private final Set<String> directories = new HashSet<>();
+
+	/**
+	 * @param compressionLevel the deflate level from 0 to 9, or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+	 */
+	public ZipOutputSink(OutputStream out, int compressionLevel) {
+		this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+		this.zip.setLevel(compressionLevel);
+	}
+
+	@Override
+	public void write(String packageName, String fileName, String content) throws IOException {
+		String directory = packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/";
+		addDirectories(directory);
+
+		putEntry(directory + fileName);
+		zip.write(content.getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+	private void addDirectories(String directory) throws IOException {
+		if (directory.isEmpty() || directories.contains(directory)) {
+			return;
+		}
+
+		// parents first, like jar tools do
+		addDirectories(directory.substring(0, directory.lastIndexOf('/', directory.length() - 2) + 1));
+		directories.add(directory);
+		putEntry(directory);
+		zip.closeEntry();
+	}
+
+	private void putEntry(String name) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTimeLocal(ENTRY_TIME);
+		zip.putNextEntry(entry);
+	}
+
+	@Override
+	public void close() throws IOException {
+		zip.close();
+	}
+}
@@ -13,19 +13,78 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+function makeCopyable(item) {
+  item.title = "Click to copy";
+  item.style["cursor"] = "pointer";
+  item.onclick = function() {
+    var range = document.createRange();
+    range.selectNode(item);
+    window.getSelection().addRange(range);
+    document.execCommand("copy");
+    window.getSelection().removeRange(range);
+    console.log("Copied to clipboard");
+  };
+}
+
+function addCell(row, tag, text, copyable) {
+  const cell = document.createElement(tag);
+
+  if (copyable) {
+    const span = document.createElement("span");
+    span.className = "copyable";
+    const code = document.createElement("code");
+    code.textContent = text;
+    span.appendChild(code);
+    makeCopyable(span);
+    cell.appendChild(span);
+  } else {
+    cell.textContent = text;
+  }
+
+  row.appendChild(cell);
+}
+
+// compact mappings are "namespace[/namespace...],name[,selector]" separated by spaces
+function buildMappingTable(details) {
+  const rows = details.dataset.mapping.split(" ").map(row => row.split(","));
+  const table = document.createElement("table");
+  table.className = "mapping";
+  const head = document.createElement("thead");
+  addCell(head, "th", "Namespace", false);
+  addCell(head, "th", "Name", false);
+
+  if (rows[0].length > 2) {
+    addCell(head, "th", "Mixin selector", false);
+  }
+
+  table.appendChild(head);
+  const body = document.createElement("tbody");
+
+  rows.forEach(cells => {
+    const row = document.createElement("tr");
+    addCell(row, "td", cells[0].split("/").join(", "), false);
+
+    for (var i = 1; i < cells.length; i++) {
+      addCell(row, "td", cells[i], true);
+    }
+
+    body.appendChild(row);
+  });
+
+  table.appendChild(body);
+  details.appendChild(table);
+}
+
 document.onreadystatechange = function() {
   if(document.readyState == "complete") {
     const items = document.querySelectorAll(".copyable");
-    items.forEach(item => {
-      item.title = "Click to copy";
-      item.style["cursor"] = "pointer";
-      item.onclick = function() {
-        var range = document.createRange();
-        range.selectNode(item);
-        window.getSelection().addRange(range);
-        document.execCommand("copy");
-        window.getSelection().removeRange(range);
-        console.log("Copied to clipboard");
+    items.forEach(makeCopyable);
+    const mappings = document.querySelectorAll("details.mapping[data-mapping]");
+    mappings.forEach(details => {
+      details.ontoggle = function() {
+        if (details.open && details.querySelector("table") == null) {
+          buildMappingTable(details);
+        }
       };
     });
   }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+var mappingSearch = (function() {
+  const script = document.currentScript;
+  const root = script.src.substring(0, script.src.lastIndexOf("/") + 1) + "mapping-search/";
+  const maxResults = 100;
+  var namespaces = null;
+  var ranges = null;
+  var manifestLoaded = null;
+  const shards = {};
+  const pending = {};
+
+  function load(file) {
+    const element = document.createElement("script");
+    element.src = root + file;
+    document.head.appendChild(element);
+  }
+
+  function loadManifest() {
+    if (manifestLoaded == null) {
+      manifestLoaded = new Promise(resolve => {
+        pending.manifest = resolve;
+        load("index.js");
+      });
+    }
+
+    return manifestLoaded;
+  }
+
+  function loadShard(id) {
+    if (shards[id] == null) {
+      shards[id] = new Promise(resolve => {
+        pending[id] = resolve;
+        load(id + ".js");
+      });
+    }
+
+    return shards[id];
+  }
+
+  // keep in sync with MappingSearchIndex.key
+  function key(name, member) {
+    if (!member) {
+      name = name.substring(Math.max(name.lastIndexOf("/"), name.lastIndexOf("$")) + 1);
+    }
+
+    return name.toLowerCase();
+  }
+
+  function isMember(entry) {
+    return entry[2].indexOf("#") >= 0;
+  }
+
+  async function search(prefix) {
+    await loadManifest();
+    const results = [];
+
+    for (var id = 0; id < ranges.length && results.length < maxResults; id++) {
+      // shards are sorted, only load the ones whose keys can start with the prefix
+      if (ranges[id][1] < prefix || ranges[id][0].substring(0, prefix.length) > prefix) {
+        continue;
+      }
+
+      const entries = await loadShard(id);
+      var low = 0;
+      var high = entries.length;
+
+      while (low < high) {
+        const mid = (low + high) >>> 1;
+
+        if (key(entries[mid][1], isMember(entries[mid])) < prefix) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+
+      for (var i = low; i < entries.length && results.length < maxResults; i++) {
+        if (!key(entries[i][1], isMember(entries[i])).startsWith(prefix)) {
+          break;
+        }
+
+        results.push(entries[i]);
+      }
+    }
+
+    return results;
+  }
+
+  function show(list, results) {
+    list.innerHTML = "";
+
+    results.forEach(entry => {
+      const item = document.createElement("li");
+      const link = document.createElement("a");
+      link.href = root + "../" + entry[2];
+      link.textContent = entry[1];
+      const namespace = document.createElement("span");
+      namespace.className = "namespace";
+      namespace.textContent = namespaces[entry[0]];
+      const target = document.createElement("span");
+      target.className = "target";
+      target.textContent = entry[2].replace(/\.html/, "").replace(/\//g, ".");
+      item.appendChild(namespace);
+      item.appendChild(link);
+      item.appendChild(target);
+      list.appendChild(item);
+    });
+
+    list.style["display"] = results.length == 0 ? "none" : "block";
+  }
+
+  const form = document.createElement("div");
+  form.className = "fabric-search";
+  const input = document.createElement("input");
+  input.type = "text";
+  input.placeholder = "Search mappings";
+  const list = document.createElement("ul");
+  list.style["display"] = "none";
+  form.appendChild(input);
+  form.appendChild(list);
+  script.parentNode.insertBefore(form, script.nextSibling);
+
+  var latest = 0;
+  input.oninput = function() {
+    const prefix = input.value.trim().toLowerCase();
+    const query = ++latest;
+
+    if (prefix.length == 0) {
+      show(list, []);
+      return;
+    }
+
+    search(prefix).then(results => {
+      // an older search may finish after a newer one
+      if (query == latest) {
+        show(list, results);
+      }
+    });
+  };
+
+  return {
+    manifest: function(names, shardRanges) {
+      namespaces = names;
+      ranges = shardRanges;
+      pending.manifest();
+    },
+    shard: function(id, entries) {
+      pending[id](entries);
+    }
+  };
+})();
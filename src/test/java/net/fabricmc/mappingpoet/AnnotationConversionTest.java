@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AnnotationNode;
+
+public class AnnotationConversionTest {
+	@Test
+	public void testEqualAnnotationsShareSpecs() {
+		Assertions.assertSame(FieldBuilder.parseAnnotation(environment("CLIENT")), FieldBuilder.parseAnnotation(environment("CLIENT")));
+		Assertions.assertNotSame(FieldBuilder.parseAnnotation(environment("CLIENT")), FieldBuilder.parseAnnotation(environment("SERVER")));
+
+		// rendered the same, but not equal constants
+		AnnotationNode intValue = new AnnotationNode("Lcom/example/Limit;");
+		intValue.visit("value", 1);
+		AnnotationNode longValue = new AnnotationNode("Lcom/example/Limit;");
+		longValue.visit("value", 1L);
+		Assertions.assertNotSame(FieldBuilder.parseAnnotation(intValue), FieldBuilder.parseAnnotation(longValue));
+	}
+
+	@Test
+	public void testNestedAnnotations() {
+		AnnotationNode outer = new AnnotationNode("Lcom/example/Environments;");
+		AnnotationNode array = (AnnotationNode) outer.visitArray("value");
+		array.visitAnnotation(null, "Lnet/fabricmc/api/Environment;").visitEnum("value", "Lnet/fabricmc/api/EnvType;", "CLIENT");
+		array.visitAnnotation(null, "Lnet/fabricmc/api/Environment;").visitEnum("value", "Lnet/fabricmc/api/EnvType;", "SERVER");
+
+		Assertions.assertEquals("@com.example.Environments({@net.fabricmc.api.Environment(net.fabricmc.api.EnvType.CLIENT),@net.fabricmc.api.Environment(net.fabricmc.api.EnvType.SERVER)})",
+				FieldBuilder.parseAnnotation(outer).toString());
+	}
+
+	private static AnnotationNode environment(String envType) {
+		AnnotationNode ret = new AnnotationNode("Lnet/fabricmc/api/Environment;");
+		ret.visitEnum("value", "Lnet/fabricmc/api/EnvType;", envType);
+		return ret;
+	}
+}
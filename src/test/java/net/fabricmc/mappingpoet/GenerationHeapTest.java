@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GenerationHeapTest {
+	private static final int CLASSES = 4000;
+	// far below what keeping every builder of the jar alive takes
+	private static final String MAX_HEAP = "-Xmx64m";
+
+	@Test
+	public void testLargeJarUnderSmallHeap(@TempDir Path dir) throws Exception {
+		Path jar = dir.resolve("synthetic.jar");
+		Path mappings = dir.resolve("synthetic.tiny");
+		Path output = dir.resolve("output");
+		Path log = dir.resolve("generation.log");
+		SyntheticJar.write(jar, CLASSES);
+		SyntheticJar.writeMappings(mappings, CLASSES);
+
+		Process process = new ProcessBuilder(
+				Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				MAX_HEAP,
+				"-XX:+ExitOnOutOfMemoryError",
+				"-cp", System.getProperty("java.class.path"),
+				Main.class.getName(),
+				mappings.toString(), jar.toString(), output.toString())
+				.redirectErrorStream(true)
+				.redirectOutput(log.toFile())
+				.start();
+
+		try {
+			Assertions.assertTrue(process.waitFor(5, TimeUnit.MINUTES), "generation timed out");
+			Assertions.assertEquals(0, process.exitValue(), () -> "generation failed under " + MAX_HEAP + ":\n" + readLog(log));
+		} finally {
+			process.destroyForcibly(); // a hung generation must not outlive the test
+		}
+
+		try (var stream = Files.walk(output)) {
+			Assertions.assertEquals(SyntheticJar.sourceFiles(CLASSES), stream.filter(p -> p.toString().endsWith(".java")).count());
+		}
+	}
+
+	private static String readLog(Path log) {
+		try {
+			return Files.readString(log);
+		} catch (Exception e) {
+			return e.toString();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.mappingpoet.input.InputSource;
+import net.fabricmc.mappingpoet.output.MemoryOutputSink;
+
+public class GenerationReportTest {
+	private static final int CLASSES = 200;
+
+	@Test
+	public void testPoolTasksMeasured(@TempDir Path dir) throws Exception {
+		Path jar = dir.resolve("synthetic.jar");
+		Path mappings = dir.resolve("synthetic.tiny");
+		SyntheticJar.write(jar, CLASSES);
+		SyntheticJar.writeMappings(mappings, CLASSES);
+
+		GenerationReport report = new GenerationReport();
+		Generator.builder(new MappingsStore(mappings))
+				.input(InputSource.of(jar))
+				.report(report)
+				.build()
+				.generate(new MemoryOutputSink());
+		String json = report.toJson();
+
+		long[] read = phase(json, GenerationReport.READ);
+		Assumptions.assumeTrue(read[0] >= 0, "CPU time is not measured by this JVM");
+
+		Assertions.assertTrue(read[0] > 0, json);
+		// parses on the pool are tasks of their own, besides the one of the reading thread
+		Assertions.assertTrue(read[1] > 1, json);
+		Assertions.assertTrue(phase(json, GenerationReport.INDEX)[0] > 0, json);
+	}
+
+	/**
+	 * Returns the CPU time and task count of a phase.
+	 */
+	private static long[] phase(String json, String phase) {
+		Matcher matcher = Pattern.compile("\"" + phase + "\": \\{\"wallNanos\": \\d+, \"cpuNanos\": (-?\\d+), \"allocatedBytes\": -?\\d+, \"tasks\": (\\d+)}").matcher(json);
+		Assertions.assertTrue(matcher.find(), json);
+		return new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))};
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Generates sources for synthetic jars of increasing size in JVMs with small heaps,
+ * and fails when the memory retained per class goes over budget.
+ *
+ * <p>Run with {@code gradlew memoryTest}. The budget in bytes per class file can be
+ * changed with {@code -Pmappingpoet.memory.budgetPerClass}.
+ */
+@Tag("memory")
+public class MemoryBudgetTest {
+	private static final long BUDGET_PER_CLASS = Long.getLong("mappingpoet.memory.budgetPerClass", 12 * 1024);
+
+	@Test
+	public void test1k(@TempDir Path dir) throws Exception {
+		generate(dir, 1_000, "-Xmx64m");
+	}
+
+	@Test
+	public void test10k(@TempDir Path dir) throws Exception {
+		generate(dir, 10_000, "-Xmx384m");
+	}
+
+	@Test
+	public void test50k(@TempDir Path dir) throws Exception {
+		generate(dir, 50_000, "-Xmx1536m");
+	}
+
+	private static void generate(Path dir, int classCount, String maxHeap) throws Exception {
+		Path jar = dir.resolve("synthetic.jar");
+		Path mappings = dir.resolve("synthetic.tiny");
+		Path output = dir.resolve("output");
+		Path log = dir.resolve("generation.log");
+		SyntheticJar.write(jar, classCount);
+		SyntheticJar.writeMappings(mappings, classCount);
+		int classFiles;
+
+		try (JarFile jarFile = new JarFile(jar.toFile())) {
+			classFiles = jarFile.size();
+		}
+
+		Process process = new ProcessBuilder(
+				Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				maxHeap,
+				"-XX:+ExitOnOutOfMemoryError",
+				"-cp", System.getProperty("java.class.path"),
+				MemoryProbe.class.getName(),
+				mappings.toString(), jar.toString(), output.toString())
+				.redirectErrorStream(true)
+				.redirectOutput(log.toFile())
+				.start();
+
+		try {
+			Assertions.assertTrue(process.waitFor(30, TimeUnit.MINUTES), "generation timed out");
+		} finally {
+			process.destroyForcibly(); // a hung generation must not outlive the test
+		}
+
+		String logContent = Files.readString(log);
+		Assertions.assertEquals(0, process.exitValue(), () -> "generation failed under " + maxHeap + ":\n" + logContent);
+
+		String result = logContent.lines()
+				.filter(line -> line.startsWith(MemoryProbe.RESULT_PREFIX))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("no result from probe:\n" + logContent))
+				.substring(MemoryProbe.RESULT_PREFIX.length());
+		String[] values = result.split(" ");
+		long baseline = Long.parseLong(values[0]);
+		long peakHeap = Long.parseLong(values[1]);
+		long peakRetained = Long.parseLong(values[2]);
+		long retainedPerClass = Math.max(0, peakRetained - baseline) / classFiles;
+
+		System.out.printf("%d class files under %s: peak heap %d MiB, peak retained %d MiB, %d bytes retained per class%n",
+				classFiles, maxHeap, peakHeap >> 20, peakRetained >> 20, retainedPerClass);
+		Assertions.assertTrue(retainedPerClass <= BUDGET_PER_CLASS,
+				() -> retainedPerClass + " bytes retained per class, over the budget of " + BUDGET_PER_CLASS);
+	}
+}
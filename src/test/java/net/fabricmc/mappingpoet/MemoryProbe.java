@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Runs a generation in its own JVM and prints its peak heap use, for {@link MemoryBudgetTest}.
+ *
+ * <p>The peak retained heap is the highest heap use right after a collection,
+ * which is an upper bound of what generation keeps reachable at any time.
+ */
+final class MemoryProbe {
+	static final String RESULT_PREFIX = "memory-probe:";
+
+	private MemoryProbe() {
+	}
+
+	public static void main(String[] args) {
+		Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP)
+				.map(MemoryPoolMXBean::getName)
+				.collect(Collectors.toSet());
+		AtomicLong peakRetained = new AtomicLong();
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+				if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+					return;
+				}
+
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+				long retained = 0;
+
+				for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+					if (heapPools.contains(entry.getKey())) {
+						retained += entry.getValue().getUsed();
+					}
+				}
+
+				peakRetained.accumulateAndGet(retained, Math::max);
+			}, null, null);
+		}
+
+		ManagementFactory.getMemoryMXBean().gc();
+		long baseline = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+		Main.generate(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]), null);
+
+		long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP)
+				.mapToLong(pool -> pool.getPeakUsage().getUsed())
+				.sum();
+		System.out.println(RESULT_PREFIX + baseline + " " + peakHeap + " " + peakRetained.get());
+	}
+}
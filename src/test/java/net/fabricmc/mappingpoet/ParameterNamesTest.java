@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.util.List;
+import java.util.Map;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeVariableName;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParameterNamesTest {
+	@Test
+	public void testSuggest() {
+		AnnotationSpec nullable = AnnotationSpec.builder(ClassName.get("org.jetbrains.annotations", "Nullable")).build();
+
+		Assertions.assertEquals("entry", ParameterNames.suggest(ClassName.get(Map.Entry.class)));
+		Assertions.assertEquals("list", ParameterNames.suggest(ArrayTypeName.of(ParameterizedTypeName.get(List.class, String.class))));
+		Assertions.assertEquals("string", ParameterNames.suggest(ArrayTypeName.of(ClassName.get(String.class).annotated(nullable))));
+		Assertions.assertEquals("t", ParameterNames.suggest(TypeVariableName.get("T")));
+		Assertions.assertEquals("int", ParameterNames.suggest(TypeName.INT.annotated(nullable)));
+		Assertions.assertEquals("char", ParameterNames.suggest(ArrayTypeName.of(TypeName.CHAR)));
+		Assertions.assertEquals("bool", ParameterNames.suggest(TypeName.BOOLEAN));
+		Assertions.assertEquals("bool", ParameterNames.suggest(ClassName.get(Boolean.class)));
+		Assertions.assertEquals("entry", ParameterNames.suggest(ParameterizedTypeName.get(Map.Entry.class, String.class, Integer.class)));
+		// named after the outermost parameterized type, as when the rendered type was cut at the first <
+		Assertions.assertEquals("outer", ParameterNames.suggest(ParameterizedTypeName.get(ClassName.get("com.example", "Outer"), TypeVariableName.get("T"))
+				.nestedClass("Inner", List.of(TypeVariableName.get("U")))));
+	}
+
+	@Test
+	public void testReserve() {
+		ParameterNames names = new ParameterNames();
+		names.use("list");
+
+		Assertions.assertTrue(names.isUsed("class"));
+		Assertions.assertEquals("list2", names.reserve("list"));
+		Assertions.assertEquals("list3", names.reserve("list"));
+		Assertions.assertEquals("int2", names.reserve("int"));
+
+		for (int i = 0; i < 20; i++) {
+			names.reserve("value");
+		}
+
+		Assertions.assertTrue(names.isUsed("value20"));
+		Assertions.assertFalse(names.isUsed("value21"));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Modifier;
+import javax.tools.JavaFileObject;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.mappingpoet.input.InputSource;
+import net.fabricmc.mappingpoet.output.MemoryOutputSink;
+
+public class StubEmitterTest {
+	private static final int CLASSES = 200;
+
+	@Test
+	public void testSameSourcesAsJavaPoet(@TempDir Path dir) throws Exception {
+		Assertions.assertTrue(StubEmitter.isAvailable(), "JavaPoet internals changed, sources are rendered in two passes");
+
+		Path jar = dir.resolve("synthetic.jar");
+		Path mappings = dir.resolve("synthetic.tiny");
+		SyntheticJar.write(jar, CLASSES);
+		SyntheticJar.writeMappings(mappings, CLASSES);
+		MappingsStore store = new MappingsStore(mappings);
+
+		List<JavaFileObject> expected = generate(store, jar, false);
+		List<JavaFileObject> actual = generate(store, jar, true);
+		Assertions.assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			Assertions.assertEquals(expected.get(i).getName(), actual.get(i).getName());
+			Assertions.assertEquals(expected.get(i).getCharContent(false), actual.get(i).getCharContent(false), expected.get(i).getName());
+		}
+	}
+
+	@Test
+	public void testClashingNames() throws Exception {
+		ClassName entry = ClassName.get(Map.class).nestedClass("Entry");
+		ClassName otherEntry = ClassName.get("com.example.other", "Entry");
+		ClassName otherList = ClassName.get("com.example.other", "List");
+		TypeVariableName list = TypeVariableName.get("List");
+
+		TypeSpec type = TypeSpec.classBuilder("Outer")
+				.addAnnotation(AnnotationSpec.builder(ClassName.get("com.example.other", "Anno")).addMember("value", "$T.class", otherEntry).build())
+				.addTypeVariable(TypeVariableName.get("T", ParameterizedTypeName.get(ClassName.get(Comparable.class), TypeVariableName.get("T"))))
+				.superclass(ClassName.get("com.example", "Base"))
+				.addField(FieldSpec.builder(entry, "entry").build())
+				.addField(FieldSpec.builder(otherEntry, "otherEntry").build())
+				.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(List.class), WildcardTypeName.subtypeOf(otherList)), "lists").build())
+				.addMethod(MethodSpec.methodBuilder("shadowed")
+						.addJavadoc("Refers to {@link $T}.\n", ClassName.get("com.example.docs", "Documented"))
+						.addTypeVariable(list)
+						.returns(list)
+						.addParameter(otherList, "other")
+						.addStatement("throw new $T()", ClassName.get("com.example.other", "Thrown"))
+						.build())
+				.addType(TypeSpec.classBuilder("Entry")
+						.addModifiers(Modifier.STATIC)
+						.addField(TypeName.INT, "value")
+						.addField(ClassName.get("com.example.other", "Outer"), "outer")
+						.build())
+				.addType(TypeSpec.enumBuilder("Kind")
+						.addEnumConstant("A", TypeSpec.anonymousClassBuilder("$T.MAX_VALUE", Integer.class)
+								.addMethod(MethodSpec.methodBuilder("get").returns(ClassName.get("com.example.other", "Kind")).addStatement("return null").build())
+								.build())
+						.addField(int.class, "value")
+						.addMethod(MethodSpec.constructorBuilder().addParameter(int.class, "value").addStatement("this.value = value").build())
+						.build())
+				.build();
+		JavaFile javaFile = JavaFile.builder("com.example", type).build();
+
+		StringBuilder actual = new StringBuilder();
+		StubEmitter.writeTo(javaFile, actual);
+		Assertions.assertEquals(javaFile.toString(), actual.toString());
+	}
+
+	private static List<JavaFileObject> generate(MappingsStore mappings, Path jar, boolean directEmit) {
+		MemoryOutputSink sink = new MemoryOutputSink();
+		Generator.builder(mappings)
+				.input(InputSource.of(jar))
+				.directEmit(directEmit)
+				.build()
+				.generate(sink);
+		return sink.getFiles();
+	}
+}
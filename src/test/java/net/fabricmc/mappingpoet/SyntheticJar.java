@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Pattern;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.TypeReference;
+
+/**
+ * Generates a deterministic jar shaped like a game jar, and a matching Tiny v2
+ * mapping with comments and parameter names, for tests and benchmarks that need
+ * large inputs.
+ *
+ * <p>Top-level classes cycle through generic classes with deep inner class nests,
+ * records, enums, sealed hierarchies and generic interfaces. Members carry
+ * generic signatures and type annotations.
+ */
+final class SyntheticJar {
+	static final String TYPE_ANNOTATION = "synthetic/TypeAnnotation";
+	static final int SHAPES = 5;
+
+	private static final String[] DESCRIPTORS = {
+			"()V", "(I)I", "(Ljava/lang/String;J)Ljava/lang/Object;", "(DLjava/util/List;)Z",
+	};
+	private static final Pattern CLASS_NAME = Pattern.compile("synthetic/p\\d+/Class(\\d+)");
+	private static final int FIELDS = 4;
+	private static final int METHODS = 8;
+
+	private SyntheticJar() {
+	}
+
+	static String className(int index) {
+		return "synthetic/p" + (index / 100) + "/Class" + index;
+	}
+
+	/**
+	 * Returns the number of source files generated from a jar of the given size.
+	 */
+	static int sourceFiles(int classCount) {
+		return classCount + 1; // and the type annotation
+	}
+
+	static void write(Path jar, int classCount) throws IOException {
+		try (OutputStream os = Files.newOutputStream(jar);
+				JarOutputStream jos = new JarOutputStream(os)) {
+			writeEntry(jos, TYPE_ANNOTATION, createTypeAnnotation());
+
+			for (int i = 0; i < classCount; i++) {
+				List<SyntheticClass> nest = nest(i);
+
+				for (SyntheticClass syntheticClass : nest) {
+					writeEntry(jos, syntheticClass.name, createClass(syntheticClass, nest));
+				}
+			}
+		}
+	}
+
+	static void writeMappings(Path tiny, int classCount) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(tiny)) {
+			writer.write("tiny\t2\t0\tintermediary\tnamed\n");
+
+			for (int i = 0; i < classCount; i++) {
+				for (SyntheticClass syntheticClass : nest(i)) {
+					writer.write("c\t" + intermediary(syntheticClass.name) + "\t" + syntheticClass.name + "\n");
+					writer.write("\tc\tSynthetic class " + syntheticClass.name.substring(syntheticClass.name.lastIndexOf('/') + 1) + ".\n");
+
+					for (int m = 0; m < syntheticClass.methods.size(); m++) {
+						writeMethodMapping(writer, syntheticClass.methods.get(m), m);
+					}
+
+					for (int f = 0; f < syntheticClass.fields.size(); f++) {
+						Member field = syntheticClass.fields.get(f);
+
+						if ((field.access & Opcodes.ACC_SYNTHETIC) == 0) {
+							writer.write("\tf\t" + intermediary(field.desc) + "\tfield_" + f + "\t" + field.name + "\n");
+							writer.write("\t\tc\tField " + field.name + " of type {@code " + Type.getType(field.desc).getClassName() + "}.\n");
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeMethodMapping(BufferedWriter writer, Member method, int index) throws IOException {
+		String intermediaryName = method.name.startsWith("<") ? method.name : "method_" + index;
+		writer.write("\tm\t" + intermediary(method.desc) + "\t" + intermediaryName + "\t" + method.name + "\n");
+		writer.write(method.name.equals("<init>") ? "\t\tc\tCreates an instance.\n" : "\t\tc\tDoes {@code " + method.name + "}.\n");
+
+		int slot = (method.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+		Type[] arguments = Type.getArgumentTypes(method.desc);
+
+		for (int p = 0; p < arguments.length; p++) {
+			if (p < method.params.length && method.params[p] != null) {
+				writer.write("\t\tp\t" + slot + "\t\t" + method.params[p] + "\n");
+				writer.write("\t\t\tc\tthe " + method.params[p] + "\n");
+			}
+
+			slot += arguments[p].getSize();
+		}
+	}
+
+	private static String intermediary(String named) {
+		return CLASS_NAME.matcher(named).replaceAll("net/minecraft/class_$1");
+	}
+
+	private static void writeEntry(JarOutputStream jos, String name, byte[] bytes) throws IOException {
+		jos.putNextEntry(new JarEntry(name + ".class"));
+		jos.write(bytes);
+		jos.closeEntry();
+	}
+
+	private static List<SyntheticClass> nest(int index) {
+		String name = className(index);
+
+		return switch (index % SHAPES) {
+		case 0 -> genericClass(name);
+		case 1 -> record(name);
+		case 2 -> enumClass(name);
+		case 3 -> sealedHierarchy(name);
+		default -> genericInterface(name);
+		};
+	}
+
+	private static List<SyntheticClass> genericClass(String name) {
+		List<SyntheticClass> nest = new ArrayList<>();
+		SyntheticClass top = new SyntheticClass(name, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, 0,
+				"<T::Ljava/lang/Comparable<TT;>;>Ljava/lang/Object;", "java/lang/Object");
+		nest.add(top);
+
+		for (int f = 0; f < FIELDS; f++) {
+			top.fields.add(new Member(Opcodes.ACC_PUBLIC, "field" + f, "I", null, null));
+		}
+
+		top.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "items", "Ljava/util/List;", "Ljava/util/List<TT;>;", "0;"));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+
+		for (int m = 0; m < METHODS; m++) {
+			String desc = DESCRIPTORS[m % DESCRIPTORS.length];
+			top.methods.add(new Member(Opcodes.ACC_PUBLIC, "method" + m, desc, null, null, "value", "extra"));
+		}
+
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "map", "(Ljava/util/function/Function;)Ljava/lang/Object;",
+				"<R:Ljava/lang/Object;>(Ljava/util/function/Function<-TT;+TR;>;)TR;", "", "mapper"));
+
+		// three levels deep, next to an instance inner class using the type variable of the outer class
+		String deep = name + "$Inner0";
+
+		for (int depth = 0; depth < 3; depth++) {
+			SyntheticClass inner = new SyntheticClass(deep, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, null, "java/lang/Object");
+			inner.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+			inner.methods.add(new Member(Opcodes.ACC_PUBLIC, "accept" + depth, "(Ljava/lang/String;I)V", null, null, "key", "count"));
+			nest.add(inner);
+			deep = deep + "$Deep" + depth;
+		}
+
+		SyntheticClass instanceInner = new SyntheticClass(name + "$Inner1", Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, Opcodes.ACC_PUBLIC, null, "java/lang/Object");
+		instanceInner.fields.add(new Member(Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, "this$0", "L" + name + ";", null, null));
+		instanceInner.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "(L" + name + ";)V", null, null, (String) null));
+		instanceInner.methods.add(new Member(Opcodes.ACC_PUBLIC, "value", "()Ljava/lang/Comparable;", "()TT;", ""));
+		nest.add(instanceInner);
+		return nest;
+	}
+
+	private static List<SyntheticClass> record(String name) {
+		SyntheticClass top = new SyntheticClass(name, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_RECORD, 0, null, "java/lang/Record");
+		top.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "x", "I", null, null));
+		top.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "name", "Ljava/lang/String;", null, ""));
+		top.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "tags", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;", null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "(ILjava/lang/String;Ljava/util/List;)V",
+				"(ILjava/lang/String;Ljava/util/List<Ljava/lang/String;>;)V", null, "x", "name", "tags"));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "x", "()I", null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "name", "()Ljava/lang/String;", null, ""));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "tags", "()Ljava/util/List;", "()Ljava/util/List<Ljava/lang/String;>;", null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "of", "(I)L" + name + ";", null, null, "value"));
+
+		SyntheticClass builder = new SyntheticClass(name + "$Builder", Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+				Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, null, "java/lang/Object");
+		builder.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+		builder.methods.add(new Member(Opcodes.ACC_PUBLIC, "x", "(I)L" + builder.name + ";", null, null, "x"));
+		builder.methods.add(new Member(Opcodes.ACC_PUBLIC, "build", "()L" + name + ";", null, null));
+		return List.of(top, builder);
+	}
+
+	private static List<SyntheticClass> enumClass(String name) {
+		String desc = "L" + name + ";";
+		SyntheticClass top = new SyntheticClass(name, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_ENUM, 0,
+				"Ljava/lang/Enum<" + desc + ">;", "java/lang/Enum");
+
+		for (String constant : new String[] {"FIRST", "SECOND", "THIRD"}) {
+			top.fields.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_ENUM, constant, desc, null, null));
+		}
+
+		top.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, "$VALUES", "[" + desc, null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "values", "()[" + desc, null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "valueOf", "(Ljava/lang/String;)" + desc, null, null, "name"));
+		top.methods.add(new Member(Opcodes.ACC_PRIVATE, "<init>", "(Ljava/lang/String;I)V", null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "describe", "(Z)Ljava/lang/String;", null, "", "verbose"));
+
+		SyntheticClass inner = new SyntheticClass(name + "$Inner0", Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, null, "java/lang/Object");
+		inner.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+		return List.of(top, inner);
+	}
+
+	private static List<SyntheticClass> sealedHierarchy(String name) {
+		String desc = "L" + name + ";";
+		SyntheticClass top = new SyntheticClass(name, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_SUPER, 0, null, "java/lang/Object");
+		top.methods.add(new Member(Opcodes.ACC_PROTECTED, "<init>", "()V", null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "area", "()D", null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "scale", "(D)" + desc, null, "", "factor"));
+
+		// a final leaf, and one that the generator has to mark non-sealed
+		SyntheticClass finalLeaf = new SyntheticClass(name + "$Leaf0", Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+				Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, null, name);
+		finalLeaf.fields.add(new Member(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "radius", "D", null, null));
+		finalLeaf.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "(D)V", null, null, "radius"));
+		SyntheticClass openLeaf = new SyntheticClass(name + "$Leaf1", Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+				Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, null, name);
+		openLeaf.methods.add(new Member(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+
+		for (SyntheticClass leaf : List.of(finalLeaf, openLeaf)) {
+			leaf.methods.add(new Member(Opcodes.ACC_PUBLIC, "area", "()D", null, null));
+			leaf.methods.add(new Member(Opcodes.ACC_PUBLIC, "scale", "(D)" + desc, null, "", "factor"));
+			top.permittedSubclasses.add(leaf.name);
+		}
+
+		return List.of(top, finalLeaf, openLeaf);
+	}
+
+	private static List<SyntheticClass> genericInterface(String name) {
+		int access = Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT;
+		String entry = name + "$Entry";
+		SyntheticClass top = new SyntheticClass(name, access, 0, "<K:Ljava/lang/Object;V:Ljava/lang/Object;>Ljava/lang/Object;", "java/lang/Object");
+		top.methods.add(new Member(access & ~Opcodes.ACC_INTERFACE, "get", "(Ljava/lang/Object;)Ljava/lang/Object;", "(TK;)TV;", "", "key"));
+		top.methods.add(new Member(access & ~Opcodes.ACC_INTERFACE, "put", "(Ljava/lang/Object;Ljava/lang/Object;)V", "(TK;TV;)V", null, "key", "value"));
+		top.methods.add(new Member(access & ~Opcodes.ACC_INTERFACE, "entries", "()Ljava/util/Set;", "()Ljava/util/Set<L" + entry + "<TK;TV;>;>;", "0;"));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC, "isEmpty", "()Z", null, null));
+		top.methods.add(new Member(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "create", "()L" + name + ";",
+				"<K:Ljava/lang/Object;V:Ljava/lang/Object;>()L" + name + "<TK;TV;>;", null));
+
+		SyntheticClass inner = new SyntheticClass(entry, access, access | Opcodes.ACC_STATIC, "<K:Ljava/lang/Object;V:Ljava/lang/Object;>Ljava/lang/Object;", "java/lang/Object");
+		inner.methods.add(new Member(access & ~Opcodes.ACC_INTERFACE, "key", "()Ljava/lang/Object;", "()TK;", null));
+		inner.methods.add(new Member(access & ~Opcodes.ACC_INTERFACE, "value", "()Ljava/lang/Object;", "()TV;", null));
+		return List.of(top, inner);
+	}
+
+	private static byte[] createTypeAnnotation() {
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT | Opcodes.ACC_ANNOTATION,
+				TYPE_ANNOTATION, null, "java/lang/Object", new String[] {"java/lang/annotation/Annotation"});
+		AnnotationVisitor target = cw.visitAnnotation("Ljava/lang/annotation/Target;", true);
+		AnnotationVisitor targets = target.visitArray("value");
+		targets.visitEnum(null, "Ljava/lang/annotation/ElementType;", "TYPE_USE");
+		targets.visitEnd();
+		target.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static byte[] createClass(SyntheticClass syntheticClass, List<SyntheticClass> nest) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V17, syntheticClass.access, syntheticClass.name, syntheticClass.signature, syntheticClass.superName, null);
+
+		for (String permittedSubclass : syntheticClass.permittedSubclasses) {
+			cw.visitPermittedSubclass(permittedSubclass);
+		}
+
+		// every class of a nest lists all of its nested classes, like javac does for the ones it refers to
+		for (SyntheticClass nested : nest) {
+			int outerEnd = nested.name.lastIndexOf('$');
+
+			if (outerEnd >= 0) {
+				cw.visitInnerClass(nested.name, nested.name.substring(0, outerEnd), nested.name.substring(outerEnd + 1), nested.innerAccess);
+			}
+		}
+
+		boolean record = (syntheticClass.access & Opcodes.ACC_RECORD) != 0;
+
+		for (Member field : syntheticClass.fields) {
+			if (record && (field.access & Opcodes.ACC_STATIC) == 0) {
+				cw.visitRecordComponent(field.name, field.desc, field.signature).visitEnd();
+			}
+
+			FieldVisitor fv = cw.visitField(field.access, field.name, field.desc, field.signature, null);
+
+			if (field.typeAnnotationPath != null) {
+				fv.visitTypeAnnotation(TypeReference.newTypeReference(TypeReference.FIELD).getValue(), typePath(field), "L" + TYPE_ANNOTATION + ";", false).visitEnd();
+			}
+
+			fv.visitEnd();
+		}
+
+		for (Member method : syntheticClass.methods) {
+			MethodVisitor mv = cw.visitMethod(method.access, method.name, method.desc, method.signature, null);
+
+			if (method.typeAnnotationPath != null) {
+				if (Type.getReturnType(method.desc) != Type.VOID_TYPE) {
+					mv.visitTypeAnnotation(TypeReference.newTypeReference(TypeReference.METHOD_RETURN).getValue(), typePath(method), "L" + TYPE_ANNOTATION + ";", false).visitEnd();
+				}
+
+				if (Type.getArgumentTypes(method.desc).length > 0) {
+					mv.visitTypeAnnotation(TypeReference.newFormalParameterReference(0).getValue(), null, "L" + TYPE_ANNOTATION + ";", false).visitEnd();
+				}
+			}
+
+			if ((method.access & Opcodes.ACC_ABSTRACT) == 0) {
+				mv.visitCode();
+				mv.visitInsn(Opcodes.ACONST_NULL);
+				mv.visitInsn(Opcodes.ATHROW);
+				mv.visitMaxs(0, 0);
+			}
+
+			mv.visitEnd();
+		}
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static TypePath typePath(Member member) {
+		return member.typeAnnotationPath.isEmpty() ? null : TypePath.fromString(member.typeAnnotationPath);
+	}
+
+	private record SyntheticClass(String name, int access, int innerAccess, String signature, String superName,
+			List<String> permittedSubclasses, List<Member> fields, List<Member> methods) {
+		SyntheticClass(String name, int access, int innerAccess, String signature, String superName) {
+			this(name, access, innerAccess, signature, superName, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+		}
+	}
+
+	/**
+	 * A field or method. Type annotations, if any, go on the type at the path, which is
+	 * empty for the whole type, and on the first parameter of methods.
+	 *
+	 * @param params parameter names in descriptor order, {@code null} for unnamed ones
+	 */
+	private record Member(int access, String name, String desc, String signature, String typeAnnotationPath, String... params) {
+	}
+}
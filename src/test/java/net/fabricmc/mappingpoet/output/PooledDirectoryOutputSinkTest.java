@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mappingpoet.output;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PooledDirectoryOutputSinkTest {
+	@Test
+	public void testWriterFailure(@TempDir Path directory) throws IOException {
+		PooledDirectoryOutputSink sink = new PooledDirectoryOutputSink(directory, 2);
+		sink.write("a.b", "A.java", "class A {}");
+		// fails on the writer thread with a NullPointerException rather than an IOException
+		sink.write("a.b", "B.java", null);
+
+		IOException e = Assertions.assertThrows(IOException.class, sink::close);
+		Assertions.assertTrue(e.getCause() instanceof NullPointerException, e.getCause()::toString);
+		Assertions.assertEquals("class A {}", Files.readString(directory.resolve("a/b/A.java")));
+	}
+}